@@ -0,0 +1,57 @@
+package com.desafiotecnico.subscription.benchmark;
+
+import com.desafiotecnico.subscription.config.GeneralConfigs;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Serialização do PaymentTransactionEvent com o mesmo conversor dos producers e listeners (GeneralConfigs),
+ * em cada formato (messaging.codec). A diferença de tamanho entre os formatos é verificada no MessageCodecTest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageConversionBenchmark {
+
+    @Param({ GeneralConfigs.CODEC_JSON, GeneralConfigs.CODEC_SMILE })
+    private String codec;
+
+    private MessageConverter converter;
+    private PaymentTransactionEvent event;
+    private Message message;
+
+    @Setup
+    public void setUp() {
+        converter = new GeneralConfigs().jsonMessageConverter(codec);
+        event = PaymentTransactionEvent.builder()
+                .subscriptionId(UUID.randomUUID())
+                .transactionId(UUID.randomUUID())
+                .priceInCents(1990)
+                .rejectedPaymentCount(1)
+                .firstAttemptAt(System.currentTimeMillis())
+                .dueAt(System.currentTimeMillis())
+                .build();
+        message = converter.toMessage(event, new MessageProperties());
+        // Como no @RabbitListener: o tipo vem do parâmetro do método.
+        message.getMessageProperties().setInferredArgumentType(PaymentTransactionEvent.class);
+    }
+
+    @Benchmark
+    public Message serialize() {
+        return converter.toMessage(event, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return converter.fromMessage(message);
+    }
+}
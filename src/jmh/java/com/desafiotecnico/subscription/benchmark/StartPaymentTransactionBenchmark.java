@@ -0,0 +1,194 @@
+package com.desafiotecnico.subscription.benchmark;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.dto.event.TransactionCancelEvent;
+import com.desafiotecnico.subscription.gateway.AdaptiveConcurrencyLimiter;
+import com.desafiotecnico.subscription.gateway.CircuitBreaker;
+import com.desafiotecnico.subscription.gateway.PaymentGatewayClient;
+import com.desafiotecnico.subscription.idempotency.PaymentIdempotencyStore;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
+import com.desafiotecnico.subscription.retry.ExponentialBackoffRetryPolicy;
+import com.desafiotecnico.subscription.retry.RetryCause;
+import com.desafiotecnico.subscription.service.PaymentTransactionService;
+import com.desafiotecnico.subscription.service.PaymentTransactionStateService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Caminho completo do startPaymentTransaction, com o PaymentGatewayClient real (bulkhead, limite adaptativo,
+ * circuit breaker, RestClient e Jackson) e banco, Redis e gateway HTTP trocados por substitutos em memória.
+ * Mede o custo da aplicação por mensagem, sem rede.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StartPaymentTransactionBenchmark {
+
+    @Param({ "approved", "declined" })
+    private String outcome;
+
+    private PaymentTransactionService service;
+
+    @Setup
+    public void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        boolean approved = "approved".equals(outcome);
+
+        var restClient = RestClient.builder()
+                .requestFactory((uri, method) -> {
+                    var request = new MockClientHttpRequest(method, uri);
+                    var response = approved
+                            ? new MockClientHttpResponse("{\"customId\":\"x\"}".getBytes(StandardCharsets.UTF_8),
+                                    HttpStatus.OK)
+                            : new MockClientHttpResponse(new byte[0], HttpStatus.BAD_REQUEST);
+                    response.getHeaders().set(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+                    request.setResponse(response);
+                    return request;
+                })
+                .build();
+
+        var gatewayClient = new PaymentGatewayClient(restClient,
+                new AdaptiveConcurrencyLimiter(100, 2, 1000, 1000, 0.7),
+                new CircuitBreaker(0.5, 50, 20, 15000, 5),
+                new Semaphore(1000),
+                meterRegistry);
+        set(gatewayClient, "paymentUrl", "http://gateway.local/payment");
+        set(gatewayClient, "acquireTimeoutMs", 500L);
+
+        var retryPolicy = new ExponentialBackoffRetryPolicy(Map.of(
+                RetryCause.DECLINED, new ExponentialBackoffRetryPolicy.Limits(3, 5000, 60000),
+                RetryCause.GATEWAY_UNAVAILABLE, new ExponentialBackoffRetryPolicy.Limits(10, 2000, 120000)),
+                86_400_000L);
+
+        service = new PaymentTransactionService(null, gatewayClient, new InMemoryStateService(),
+                new NoOpProducer(), retryPolicy, new InMemoryIdempotencyStore(), meterRegistry);
+        set(service, "gatewayMode", "sync");
+        set(service, "unavailableGatewayRetryDelayMs", 2000L);
+    }
+
+    @Benchmark
+    public PaymentTransactionEvent startPaymentTransaction() {
+        var event = PaymentTransactionEvent.builder()
+                .subscriptionId(UUID.randomUUID())
+                .transactionId(UUID.randomUUID())
+                .priceInCents(1990)
+                .build();
+        service.startPaymentTransaction(event);
+        return event;
+    }
+
+    private static void set(Object target, String field, Object value) {
+        var f = ReflectionUtils.findField(target.getClass(), field);
+        ReflectionUtils.makeAccessible(f);
+        ReflectionUtils.setField(f, target, value);
+    }
+
+    static class InMemoryStateService extends PaymentTransactionStateService {
+
+        InMemoryStateService() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public boolean claimForProcessing(PaymentTransactionEvent event, UUID owner) {
+            return true;
+        }
+
+        @Override
+        public boolean approve(PaymentTransactionEvent event, UUID owner) {
+            return true;
+        }
+
+        @Override
+        public boolean scheduleRetry(PaymentTransactionStatus status, PaymentTransactionEvent event, long delayMs,
+                UUID owner) {
+            return true;
+        }
+
+        @Override
+        public boolean decline(PaymentTransactionEvent event, String reason, SubscriptionCancelEvent cancelEvent,
+                UUID owner) {
+            return true;
+        }
+
+        @Override
+        public boolean abort(PaymentTransactionEvent event, String reason, UUID owner) {
+            return true;
+        }
+    }
+
+    static class InMemoryIdempotencyStore extends PaymentIdempotencyStore {
+
+        InMemoryIdempotencyStore() {
+            super(null);
+        }
+
+        @Override
+        public Claim tryClaim(PaymentTransactionEvent event) {
+            return Claim.CLAIMED;
+        }
+
+        @Override
+        public void release(PaymentTransactionEvent event) {
+        }
+
+        @Override
+        public void markAttemptDone(PaymentTransactionEvent event) {
+        }
+
+        @Override
+        public void markDone(UUID transactionId) {
+        }
+    }
+
+    static class NoOpProducer implements SubscriptionRenewalProducer {
+
+        @Override
+        public void sendRenewalStart(PaymentTransactionEvent event) {
+        }
+
+        @Override
+        public void sendRenewalStart(PaymentTransactionEvent event, long delayMs) {
+        }
+
+        @Override
+        public void sendRenewalStartBatch(List<PaymentTransactionEvent> events) {
+        }
+
+        @Override
+        public void sendCancelSubscription(SubscriptionCancelEvent event) {
+        }
+
+        @Override
+        public void sendCancelSubscription(SubscriptionCancelEvent event, long delayMs) {
+        }
+
+        @Override
+        public void sendPaymentResponse(PaymentGatewayResponse event) {
+        }
+
+        @Override
+        public void sendCancelTransaction(TransactionCancelEvent event) {
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.desafiotecnico.subscription.benchmark;
+
+import com.desafiotecnico.subscription.domain.Plan;
+import com.desafiotecnico.subscription.domain.Subscription;
+import com.desafiotecnico.subscription.domain.SubscriptionStatus;
+import com.desafiotecnico.subscription.dto.response.SubscriptionResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriptionMappingBenchmark {
+
+    @Param({ "BASICO", "FAMILIA" })
+    private String planName;
+
+    private Subscription subscription;
+
+    @Setup
+    public void setUp() {
+        subscription = Subscription.builder()
+                .id(UUID.randomUUID())
+                .userId(UUID.randomUUID())
+                .plan(planName)
+                .priceInCents(Plan.fromName(planName).getPriceInCents())
+                .status(SubscriptionStatus.ATIVA)
+                .startDate(LocalDate.now())
+                .expirationDate(LocalDate.now().plusMonths(1))
+                .build();
+    }
+
+    @Benchmark
+    public SubscriptionResponse fromInternal() {
+        return SubscriptionResponse.fromInternal(subscription);
+    }
+
+    @Benchmark
+    public Plan planFromName() {
+        return Plan.fromName(planName);
+    }
+}
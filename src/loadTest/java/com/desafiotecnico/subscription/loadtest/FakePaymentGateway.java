@@ -0,0 +1,98 @@
+package com.desafiotecnico.subscription.loadtest;
+
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Gateway de pagamento falso para o teste de carga, em processo (HttpServer do JDK numa porta livre, uma
+ * virtual thread por requisição). Responde no modo sync: 200 com o customId, 422 para recusa e 503 para erro,
+ * seguindo o LoadProfile.
+ */
+@Slf4j
+final class FakePaymentGateway implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LoadProfile profile;
+
+    private final LongAdder approved = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private FakePaymentGateway(LoadProfile profile) throws IOException {
+        this.profile = profile;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/payment", this::handle);
+    }
+
+    static FakePaymentGateway start(LoadProfile profile) throws IOException {
+        var gateway = new FakePaymentGateway(profile);
+        gateway.server.start();
+        log.info("Gateway falso em {} com {}", gateway.url(), profile);
+        return gateway;
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/payment";
+    }
+
+    Map<String, Long> calls() {
+        Map<String, Long> calls = new LinkedHashMap<>();
+        calls.put("approved", approved.sum());
+        calls.put("declined", declined.sum());
+        calls.put("error", errors.sum());
+        return calls;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            var request = objectMapper.readValue(exchange.getRequestBody(), PaymentGatewayRequest.class);
+            Thread.sleep(profile.nextLatencyMs());
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < profile.errorRate()) {
+                errors.increment();
+                respond(exchange, 503, PaymentGatewayResponse.builder()
+                        .errorCode("UNAVAILABLE").errorDescription("Erro simulado").build());
+            } else if (roll < profile.errorRate() + profile.declineRate()) {
+                declined.increment();
+                respond(exchange, 422, PaymentGatewayResponse.builder()
+                        .errorCode("DECLINED").errorDescription("Recusa simulada").build());
+            } else {
+                approved.increment();
+                respond(exchange, 200, PaymentGatewayResponse.builder()
+                        .customId(request.getCustomId().toString()).build());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, PaymentGatewayResponse body) throws IOException {
+        var bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,39 @@
+package com.desafiotecnico.subscription.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Comportamento do gateway falso: latência (base + variação uniforme), fração de respostas 5xx e fração de
+ * recusas 4xx. O profile escolhido em loadtest.profile dá os valores padrão, e cada um pode ser sobrescrito
+ * individualmente (loadtest.gateway.latency-ms, jitter-ms, error-rate e decline-rate).
+ */
+record LoadProfile(String name, long latencyMs, long jitterMs, double errorRate, double declineRate) {
+
+    static LoadProfile fromSystemProperties() {
+        var base = preset(System.getProperty("loadtest.profile", "nominal"));
+        return new LoadProfile(base.name(),
+                Long.getLong("loadtest.gateway.latency-ms", base.latencyMs()),
+                Long.getLong("loadtest.gateway.jitter-ms", base.jitterMs()),
+                doubleProperty("loadtest.gateway.error-rate", base.errorRate()),
+                doubleProperty("loadtest.gateway.decline-rate", base.declineRate()));
+    }
+
+    private static LoadProfile preset(String name) {
+        return switch (name) {
+            case "nominal" -> new LoadProfile(name, 50, 30, 0.0, 0.05);
+            case "degraded" -> new LoadProfile(name, 400, 600, 0.10, 0.05);
+            case "declines" -> new LoadProfile(name, 50, 30, 0.0, 0.50);
+            case "outage" -> new LoadProfile(name, 50, 30, 0.60, 0.0);
+            default -> throw new IllegalArgumentException("Profile de carga desconhecido: " + name);
+        };
+    }
+
+    private static double doubleProperty(String key, double defaultValue) {
+        var value = System.getProperty(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    long nextLatencyMs() {
+        return latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+    }
+}
@@ -0,0 +1,208 @@
+package com.desafiotecnico.subscription.loadtest;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.domain.Plan;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import com.desafiotecnico.subscription.service.RenewalJobService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Teste de carga ponta a ponta: semeia N usuários e assinaturas vencendo numa data exclusiva da execução,
+ * dispara o job de renovação e espera até todas as transações do job chegarem a um estado final.
+ * Mede o tempo do trigger, o tempo até esvaziar, a vazão e a latência por transação (data_inicio até
+ * data_finalizacao, ou seja, fila + gateway + retentativas), e grava tudo em JSON.
+ * Usa o Postgres, o Redis e o RabbitMQ do docker-compose; só o gateway é falso.
+ */
+@SpringBootTest
+@Slf4j
+class RenewalLoadTest {
+
+        private static final Set<String> FINAL_STATUSES = Set.of(
+                        PaymentTransactionStatus.APPROVED.name(),
+                        PaymentTransactionStatus.DECLINED.name(),
+                        PaymentTransactionStatus.ABORTED.name(),
+                        PaymentTransactionStatus.VOIDED.name());
+
+        private static final int SEED_BATCH_SIZE = 1000;
+
+        private static final LoadProfile PROFILE = LoadProfile.fromSystemProperties();
+        private static FakePaymentGateway gateway;
+
+        @Autowired
+        private RenewalJobService renewalJobService;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private ObjectMapper objectMapper;
+
+        @DynamicPropertySource
+        static void gatewayProperties(DynamicPropertyRegistry registry) throws IOException {
+                gateway = FakePaymentGateway.start(PROFILE);
+                registry.add("integration.payments.url", gateway::url);
+                registry.add("integration.payments.mode", () -> "sync");
+                // Atrasos curtos entre tentativas: o teste mede o fluxo, não a espera de produção.
+                registry.add("payment.retry.declined.base-delay-ms", () -> 100);
+                registry.add("payment.retry.declined.max-delay-ms", () -> 1000);
+                registry.add("payment.retry.unavailable.base-delay-ms", () -> 100);
+                registry.add("payment.retry.unavailable.max-delay-ms", () -> 2000);
+                registry.add("integration.payments.limiter.rejected-retry-delay-ms", () -> 200);
+                registry.add("integration.payments.circuit-breaker.open-duration-ms", () -> 2000);
+        }
+
+        @AfterAll
+        static void stopGateway() {
+                gateway.close();
+        }
+
+        @Test
+        void renewalDrainsWithinTimeout() throws Exception {
+                int subscriptions = Integer.getInteger("loadtest.subscriptions", 10_000);
+                long timeoutMs = TimeUnit.SECONDS.toMillis(Long.getLong("loadtest.timeout-seconds", 900));
+
+                // Data exclusiva da execução: o trigger só enxerga as assinaturas semeadas agora.
+                var date = LocalDate.of(2100, 1, 1).plusDays(ThreadLocalRandom.current().nextInt(100_000));
+                long seedStart = System.nanoTime();
+                seed(subscriptions, date);
+                long seedMs = elapsedMs(seedStart);
+                log.info("Semeadas {} assinaturas para {} em {} ms", subscriptions, date, seedMs);
+
+                long start = System.nanoTime();
+                var job = renewalJobService.start(subscriptions, date);
+
+                Long triggerMs = null;
+                Long drainMs = null;
+                Map<String, Long> counts = Map.of();
+                while (elapsedMs(start) < timeoutMs) {
+                        if (triggerMs == null && renewalJobService.find(job.getId())
+                                        .filter(j -> j.getStatus() != RenewalJobStatus.RUNNING).isPresent()) {
+                                triggerMs = elapsedMs(start);
+                        }
+                        counts = renewalJobService.transactionsByStatus(job.getId());
+                        if (triggerMs != null && pending(counts) == 0) {
+                                drainMs = elapsedMs(start);
+                                break;
+                        }
+                        Thread.sleep(250);
+                }
+
+                var report = report(job.getId(), subscriptions, seedMs, triggerMs, drainMs, counts);
+                var path = writeReport(report);
+                log.info("Relatório do teste de carga em {}: {}", path, objectMapper.writeValueAsString(report));
+
+                assertTrue(drainMs != null, "Transações do job não esvaziaram em " + timeoutMs + " ms: " + counts);
+                assertEquals(RenewalJobStatus.COMPLETED, renewalJobService.find(job.getId()).orElseThrow().getStatus());
+                assertEquals(subscriptions, counts.values().stream().mapToLong(Long::longValue).sum());
+        }
+
+        private void seed(int subscriptions, LocalDate expirationDate) {
+                var plans = Plan.values();
+                var runId = UUID.randomUUID().toString().substring(0, 8);
+                for (int from = 0; from < subscriptions; from += SEED_BATCH_SIZE) {
+                        int to = Math.min(subscriptions, from + SEED_BATCH_SIZE);
+                        List<Object[]> users = new ArrayList<>(to - from);
+                        List<Object[]> subs = new ArrayList<>(to - from);
+                        for (int i = from; i < to; i++) {
+                                var userId = UUID.randomUUID();
+                                var plan = plans[i % plans.length];
+                                users.add(new Object[] { userId, "Carga " + i,
+                                                "carga-" + runId + "-" + i + "@loadtest.local" });
+                                subs.add(new Object[] { UUID.randomUUID(), userId, plan.getName(),
+                                                plan.getPriceInCents(), expirationDate.minusMonths(1), expirationDate });
+                        }
+                        jdbcTemplate.batchUpdate("INSERT INTO users (id, name, email) VALUES (?, ?, ?)", users);
+                        jdbcTemplate.batchUpdate("INSERT INTO subscriptions (id, user_id, plan, price_in_cents, "
+                                        + "start_date, expiration_date, status) VALUES (?, ?, ?, ?, ?, ?, 'ATIVA')", subs);
+                }
+        }
+
+        private Map<String, Object> report(UUID jobId, int subscriptions, long seedMs, Long triggerMs, Long drainMs,
+                        Map<String, Long> counts) {
+                var latency = jdbcTemplate.queryForMap("""
+                                SELECT count(*) AS finished,
+                                       percentile_cont(0.5) WITHIN GROUP (ORDER BY extract(epoch FROM data_finalizacao - data_inicio) * 1000) AS p50,
+                                       percentile_cont(0.99) WITHIN GROUP (ORDER BY extract(epoch FROM data_finalizacao - data_inicio) * 1000) AS p99,
+                                       max(extract(epoch FROM data_finalizacao - data_inicio) * 1000) AS max
+                                FROM payment_transactions
+                                WHERE renewal_job_id = ? AND data_finalizacao IS NOT NULL
+                                """, jobId);
+
+                Map<String, Object> gatewayProfile = new LinkedHashMap<>();
+                gatewayProfile.put("profile", PROFILE.name());
+                gatewayProfile.put("latencyMs", PROFILE.latencyMs());
+                gatewayProfile.put("jitterMs", PROFILE.jitterMs());
+                gatewayProfile.put("errorRate", PROFILE.errorRate());
+                gatewayProfile.put("declineRate", PROFILE.declineRate());
+
+                Map<String, Object> transactionLatency = new LinkedHashMap<>();
+                transactionLatency.put("p50", toLong(latency.get("p50")));
+                transactionLatency.put("p99", toLong(latency.get("p99")));
+                transactionLatency.put("max", toLong(latency.get("max")));
+
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("timestamp", LocalDateTime.now().toString());
+                report.put("jobId", jobId.toString());
+                report.put("subscriptions", subscriptions);
+                report.put("gateway", gatewayProfile);
+                report.put("drained", drainMs != null);
+                report.put("seedMs", seedMs);
+                report.put("triggerMs", triggerMs);
+                report.put("timeToDrainMs", drainMs);
+                report.put("throughputPerSecond", drainMs == null || drainMs == 0 ? null
+                                : ((Number) latency.get("finished")).longValue() * 1000.0 / drainMs);
+                report.put("transactionLatencyMs", transactionLatency);
+                report.put("transactionsByStatus", counts);
+                report.put("gatewayCalls", gateway.calls());
+                return report;
+        }
+
+        private Path writeReport(Map<String, Object> report) throws IOException {
+                var dir = Path.of(System.getProperty("loadtest.report-dir", "build/reports/loadtest"));
+                Files.createDirectories(dir);
+                var path = dir.resolve("report.json");
+                objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), report);
+                return path;
+        }
+
+        private static long pending(Map<String, Long> counts) {
+                return counts.entrySet().stream()
+                                .filter(entry -> !FINAL_STATUSES.contains(entry.getKey()))
+                                .mapToLong(Map.Entry::getValue)
+                                .sum();
+        }
+
+        private static Long toLong(Object value) {
+                return value == null ? null : Math.round(((Number) value).doubleValue());
+        }
+
+        private static long elapsedMs(long startNanos) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        }
+}
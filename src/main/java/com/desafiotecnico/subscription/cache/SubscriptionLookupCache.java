@@ -0,0 +1,82 @@
+package com.desafiotecnico.subscription.cache;
+
+import com.desafiotecnico.subscription.domain.Subscription;
+import com.desafiotecnico.subscription.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+ * Leitura quente da criação de assinatura: validade da assinatura vigente do usuário.
+ *
+ * Guarda a expirationDate, com TTL até o fim desse dia. Quem consulta compara a data com o dia atual, então um
+ * valor no near cache nunca faz uma assinatura vencida parecer vigente, e o usuário que já tem assinatura é
+ * recusado sem ir ao banco. A ausência não é guardada: ela libera a criação de uma assinatura e precisa vir do
+ * banco (SubscriptionService.createSubscription consulta com a linha do usuário travada).
+ *
+ * A evicção roda depois do commit, para que uma leitura concorrente não repovoe o cache com o estado anterior.
+ */
+@Component
+public class SubscriptionLookupCache {
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final TwoLevelCache activeSubscriptions;
+
+    private final Duration maxActiveSubscriptionTtl;
+
+    public SubscriptionLookupCache(SubscriptionRepository subscriptionRepository,
+            StringRedisTemplate redisTemplate, MeterRegistry meterRegistry,
+            @Value("${cache.near.max-size}") long nearMaxSize,
+            @Value("${cache.near.ttl-seconds}") long nearTtlSeconds,
+            @Value("${cache.active-subscription.max-ttl-seconds}") long maxActiveSubscriptionTtlSeconds) {
+        this.subscriptionRepository = subscriptionRepository;
+        this.activeSubscriptions = new TwoLevelCache("active-subscriptions", nearMaxSize,
+                Duration.ofSeconds(nearTtlSeconds), redisTemplate, meterRegistry);
+        this.maxActiveSubscriptionTtl = Duration.ofSeconds(maxActiveSubscriptionTtlSeconds);
+    }
+
+    /*
+     * Data de expiração da assinatura do usuário que vence depois de today, se houver.
+     */
+    public Optional<LocalDate> activeSubscriptionExpiration(UUID userId, LocalDate today) {
+        var cached = activeSubscriptions.get(userId.toString());
+        if (cached.isPresent()) {
+            var expiration = LocalDate.parse(cached.get());
+            if (expiration.isAfter(today)) {
+                return Optional.of(expiration);
+            }
+        }
+
+        var expiration = subscriptionRepository.findFirstByUserIdAndExpirationDateAfter(userId, today)
+                .map(Subscription::getExpirationDate);
+
+        if (expiration.isPresent()) {
+            var untilExpired = Duration.between(LocalDateTime.now(), expiration.get().plusDays(1).atStartOfDay());
+            activeSubscriptions.put(userId.toString(), expiration.get().toString(),
+                    untilExpired.compareTo(maxActiveSubscriptionTtl) > 0 ? maxActiveSubscriptionTtl : untilExpired);
+        }
+        return expiration;
+    }
+
+    public void evictActiveSubscription(UUID userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    activeSubscriptions.evict(userId.toString());
+                }
+            });
+        } else {
+            activeSubscriptions.evict(userId.toString());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.desafiotecnico.subscription.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/*
+ * Cache em dois níveis: Caffeine local (near cache) na frente do Redis, compartilhado entre as instâncias.
+ * O near cache tem TTL curto e fixo, o que limita o tempo que outra instância enxerga um valor já evictado;
+ * no Redis cada entrada tem o TTL que o chamador informar. Falhas do Redis viram miss.
+ */
+@Slf4j
+public class TwoLevelCache {
+
+    private final String name;
+    private final Cache<String, String> near;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Counter nearHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    public TwoLevelCache(String name, long nearMaxSize, Duration nearTtl, StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry) {
+        this.name = name;
+        this.redisTemplate = redisTemplate;
+        this.near = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(nearTtl)
+                .build();
+
+        this.nearHits = counter(meterRegistry, "near_hit");
+        this.redisHits = counter(meterRegistry, "redis_hit");
+        this.misses = counter(meterRegistry, "miss");
+
+        Gauge.builder("subscription.cache.hit.ratio", this, TwoLevelCache::hitRatio)
+                .description("Fração das consultas atendidas pelo cache (near ou Redis)")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    public Optional<String> get(String key) {
+        String value = near.getIfPresent(key);
+        if (value != null) {
+            nearHits.increment();
+            return Optional.of(value);
+        }
+
+        try {
+            value = redisTemplate.opsForValue().get(redisKey(key));
+        } catch (DataAccessException e) {
+            log.warn("Redis indisponível lendo o cache {}. Indo ao banco.", name, e);
+            value = null;
+        }
+
+        if (value == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        redisHits.increment();
+        near.put(key, value);
+        return Optional.of(value);
+    }
+
+    public void put(String key, String value, Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            return;
+        }
+        near.put(key, value);
+        try {
+            redisTemplate.opsForValue().set(redisKey(key), value, ttl);
+        } catch (DataAccessException e) {
+            log.warn("Falha ao gravar no cache {} do Redis.", name, e);
+        }
+    }
+
+    public void evict(String key) {
+        near.invalidate(key);
+        try {
+            redisTemplate.delete(redisKey(key));
+        } catch (DataAccessException e) {
+            log.warn("Falha ao evictar a chave {} do cache {} no Redis.", key, name, e);
+        }
+    }
+
+    private double hitRatio() {
+        double hits = nearHits.count() + redisHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("subscription.cache.gets")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private String redisKey(String key) {
+        return "cache:" + name + ":" + key;
+    }
+}
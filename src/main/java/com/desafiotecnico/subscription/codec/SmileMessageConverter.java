@@ -0,0 +1,61 @@
+package com.desafiotecnico.subscription.codec;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.DefaultJackson2JavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.util.Map;
+
+/*
+ * Conversor das mensagens em Smile (JSON binário do Jackson): mesmo modelo de objetos do JSON, mas sem repetir
+ * os nomes dos campos por extenso e com UUIDs e números em binário. O tipo vai no header __TypeId__ como no
+ * Jackson2JsonMessageConverter, só que com ids curtos (typeIds) em vez do nome completo da classe; ids
+ * desconhecidos ainda são lidos como nome de classe. Nos listeners vale o tipo do parâmetro do método.
+ */
+public class SmileMessageConverter extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final ObjectMapper objectMapper = SmileMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .findAndAddModules()
+            .build();
+
+    private final DefaultJackson2JavaTypeMapper typeMapper = new DefaultJackson2JavaTypeMapper();
+
+    public SmileMessageConverter(Map<String, Class<?>> typeIds) {
+        typeMapper.setTrustedPackages("*");
+        typeMapper.setIdClassMapping(typeIds);
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(object);
+        } catch (IOException e) {
+            throw new MessageConversionException("Falha ao serializar " + object.getClass().getName() + " em Smile", e);
+        }
+
+        messageProperties.setContentType(CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        typeMapper.fromJavaType(objectMapper.constructType(object.getClass()), messageProperties);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        var targetType = typeMapper.toJavaType(message.getMessageProperties());
+        try {
+            return objectMapper.readValue(message.getBody(), targetType);
+        } catch (IOException e) {
+            throw new MessageConversionException("Falha ao ler mensagem Smile como " + targetType, e);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.desafiotecnico.subscription.config;
 
 import com.desafiotecnico.subscription.error.ApiError;
 import com.desafiotecnico.subscription.error.CodedException;
+import com.desafiotecnico.subscription.error.RenewalJobRunningException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -24,6 +25,16 @@ public class ControllerAdviceConfig {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(RenewalJobRunningException.class)
+    public ResponseEntity<ApiError> handleRenewalJobRunning(RenewalJobRunningException ex) {
+        ApiError error = ApiError.builder()
+                .code("RENEWAL_JOB_RUNNING")
+                .description(ex.getMessage())
+                .details(Map.of("jobId", ex.getJobId()))
+                .build();
+        return ResponseEntity.status(409).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
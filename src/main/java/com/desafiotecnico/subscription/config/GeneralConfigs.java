@@ -1,21 +1,51 @@
 package com.desafiotecnico.subscription.config;
 
+import com.desafiotecnico.subscription.codec.SmileMessageConverter;
+import com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.dto.event.TransactionCancelEvent;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+
+import java.util.Map;
 
 @Configuration
 public class GeneralConfigs {
-    @Bean
-    public MessageConverter jsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
-    }
 
+    public static final String CODEC_JSON = "json";
+    public static final String CODEC_SMILE = "smile";
+
+    // Ids curtos do header __TypeId__ no formato Smile.
+    public static final Map<String, Class<?>> EVENT_TYPE_IDS = Map.of(
+            "renewal-start", PaymentTransactionEvent.class,
+            "subscription-cancel", SubscriptionCancelEvent.class,
+            "transaction-cancel", TransactionCancelEvent.class,
+            "gateway-response", PaymentGatewayResponse.class);
+
+    /*
+     * Lê cada mensagem pelo seu contentType (application/json ou application/x-jackson-smile), então os dois
+     * formatos convivem na fila e no outbox. messaging.codec escolhe só o formato das mensagens novas: para
+     * migrar, todas as instâncias sobem com esta versão (que lê os dois) e só depois o codec vira smile.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public MessageConverter jsonMessageConverter(@Value("${messaging.codec}") String codec) {
+        var json = new Jackson2JsonMessageConverter();
+        var smile = new SmileMessageConverter(EVENT_TYPE_IDS);
+
+        var converter = new ContentTypeDelegatingMessageConverter(switch (codec) {
+            case CODEC_JSON -> json;
+            case CODEC_SMILE -> smile;
+            default -> throw new IllegalArgumentException("messaging.codec desconhecido: " + codec);
+        });
+        converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        converter.addDelegate(SmileMessageConverter.CONTENT_TYPE, smile);
+        return converter;
     }
 
 }
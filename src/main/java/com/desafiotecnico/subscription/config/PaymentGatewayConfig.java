@@ -0,0 +1,139 @@
+package com.desafiotecnico.subscription.config;
+
+import com.desafiotecnico.subscription.gateway.AdaptiveConcurrencyLimiter;
+import com.desafiotecnico.subscription.gateway.CircuitBreaker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+@Configuration
+public class PaymentGatewayConfig {
+
+    @Value("${integration.payments.connect-timeout-ms}")
+    private long connectTimeoutMs;
+
+    @Value("${integration.payments.read-timeout-ms}")
+    private long readTimeoutMs;
+
+    @Value("${integration.payments.http2-enabled}")
+    private boolean http2Enabled;
+
+    @Value("${integration.payments.limiter.initial-limit}")
+    private int limiterInitialLimit;
+
+    @Value("${integration.payments.limiter.min-limit}")
+    private int limiterMinLimit;
+
+    @Value("${integration.payments.limiter.max-limit}")
+    private int limiterMaxLimit;
+
+    @Value("${integration.payments.limiter.latency-threshold-ms}")
+    private long limiterLatencyThresholdMs;
+
+    @Value("${integration.payments.limiter.backoff-ratio}")
+    private double limiterBackoffRatio;
+
+    @Value("${integration.payments.circuit-breaker.failure-rate-threshold}")
+    private double breakerFailureRateThreshold;
+
+    @Value("${integration.payments.circuit-breaker.sliding-window-size}")
+    private int breakerSlidingWindowSize;
+
+    @Value("${integration.payments.circuit-breaker.minimum-calls}")
+    private int breakerMinimumCalls;
+
+    @Value("${integration.payments.circuit-breaker.open-duration-ms}")
+    private long breakerOpenDurationMs;
+
+    @Value("${integration.payments.circuit-breaker.half-open-permitted-calls}")
+    private int breakerHalfOpenPermittedCalls;
+
+    @Value("${integration.payments.bulkhead.max-concurrent-calls}")
+    private int bulkheadMaxConcurrentCalls;
+
+    /*
+     * Executor do HttpClient do gateway. Fica fora do contexto como bean porque um Executor registrado faz o
+     * Spring Boot deixar de criar o applicationTaskExecutor; é fechado no @PreDestroy, depois do HttpClient.
+     */
+    private final ExecutorService paymentGatewayHttpExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /*
+     * Cliente HTTP dedicado ao gateway: o HttpClient do JDK mantém as conexões abertas (keep-alive)
+     * e as reaproveita entre os consumidores. O tamanho do pool e o keep-alive não são configuráveis por
+     * cliente: vêm das flags -Djdk.httpclient.connectionPoolSize e -Djdk.httpclient.keepalive.timeout da JVM
+     * (bootRun no build.gradle; JAVA_TOOL_OPTIONS no deploy) e valem para todos os HttpClient do processo.
+     */
+    @Bean
+    public HttpClient paymentGatewayHttpClient() {
+        return HttpClient.newBuilder()
+                .version(http2Enabled ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(paymentGatewayHttpExecutor)
+                .build();
+    }
+
+    @PreDestroy
+    void closePaymentGatewayHttpExecutor() {
+        paymentGatewayHttpExecutor.close();
+    }
+
+    @Bean
+    public RestClient paymentGatewayRestClient(HttpClient paymentGatewayHttpClient) {
+        var requestFactory = new JdkClientHttpRequestFactory(paymentGatewayHttpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        return RestClient.builder()
+                .requestFactory(requestFactory)
+                .build();
+    }
+
+    @Bean
+    public AdaptiveConcurrencyLimiter paymentGatewayLimiter(MeterRegistry meterRegistry) {
+        var limiter = new AdaptiveConcurrencyLimiter(limiterInitialLimit, limiterMinLimit, limiterMaxLimit,
+                limiterLatencyThresholdMs, limiterBackoffRatio);
+
+        Gauge.builder("payment.gateway.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Limite atual de chamadas simultâneas ao gateway")
+                .register(meterRegistry);
+        Gauge.builder("payment.gateway.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Chamadas ao gateway em andamento")
+                .register(meterRegistry);
+
+        return limiter;
+    }
+
+    @Bean
+    public CircuitBreaker paymentGatewayCircuitBreaker(MeterRegistry meterRegistry) {
+        var circuitBreaker = new CircuitBreaker(breakerFailureRateThreshold, breakerSlidingWindowSize,
+                breakerMinimumCalls, breakerOpenDurationMs, breakerHalfOpenPermittedCalls);
+
+        // 0 = CLOSED, 1 = HALF_OPEN, 2 = OPEN
+        Gauge.builder("payment.gateway.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("Estado do circuit breaker do gateway (0 fechado, 1 meio-aberto, 2 aberto)")
+                .register(meterRegistry);
+
+        return circuitBreaker;
+    }
+
+    @Bean
+    public Semaphore paymentGatewayBulkhead(MeterRegistry meterRegistry) {
+        var bulkhead = new Semaphore(bulkheadMaxConcurrentCalls);
+
+        Gauge.builder("payment.gateway.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Vagas livres no bulkhead do gateway")
+                .register(meterRegistry);
+
+        return bulkhead;
+    }
+}
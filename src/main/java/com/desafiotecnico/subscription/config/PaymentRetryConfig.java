@@ -0,0 +1,46 @@
+package com.desafiotecnico.subscription.config;
+
+import com.desafiotecnico.subscription.retry.ExponentialBackoffRetryPolicy;
+import com.desafiotecnico.subscription.retry.RetryCause;
+import com.desafiotecnico.subscription.retry.RetryPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class PaymentRetryConfig {
+
+    @Value("${payment.retry.declined.max-attempts}")
+    private int declinedMaxAttempts;
+
+    @Value("${payment.retry.declined.base-delay-ms}")
+    private long declinedBaseDelayMs;
+
+    @Value("${payment.retry.declined.max-delay-ms}")
+    private long declinedMaxDelayMs;
+
+    @Value("${payment.retry.unavailable.max-attempts}")
+    private int unavailableMaxAttempts;
+
+    @Value("${payment.retry.unavailable.base-delay-ms}")
+    private long unavailableBaseDelayMs;
+
+    @Value("${payment.retry.unavailable.max-delay-ms}")
+    private long unavailableMaxDelayMs;
+
+    @Value("${payment.retry.total-deadline-ms}")
+    private long totalDeadlineMs;
+
+    @Bean
+    public RetryPolicy paymentRetryPolicy() {
+        return new ExponentialBackoffRetryPolicy(Map.of(
+                RetryCause.DECLINED,
+                new ExponentialBackoffRetryPolicy.Limits(declinedMaxAttempts, declinedBaseDelayMs, declinedMaxDelayMs),
+                RetryCause.GATEWAY_UNAVAILABLE,
+                new ExponentialBackoffRetryPolicy.Limits(unavailableMaxAttempts, unavailableBaseDelayMs,
+                        unavailableMaxDelayMs)),
+                totalDeadlineMs);
+    }
+}
@@ -1,9 +1,15 @@
 package com.desafiotecnico.subscription.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.CustomExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -18,6 +24,8 @@ public class RabbitMQConfig {
     public static final String QUEUE_SUBSCRIPTION_CANCEL = "subscription.cancel";
     public static final String QUEUE_PAYMENT_TRANSACTION_CANCEL = "payment.transaction.cancel";
     public static final String QUEUE_PAYMENT_GATEWAY_RESPONSE = "payment.gateway.response";
+    public static final String RENEWAL_BATCH_CONTAINER_FACTORY = "renewalBatchContainerFactory";
+    public static final String CANCEL_BATCH_CONTAINER_FACTORY = "cancelBatchContainerFactory";
 
     @Bean
     public CustomExchange subscriptionExchange() {
@@ -73,4 +81,43 @@ public class RabbitMQConfig {
                 .noargs();
     }
 
+    /*
+     * Container do consumo em lote da fila de renovação: junta até batch-size mensagens (ou o que chegou até o
+     * receive-timeout) numa chamada do listener, com ack manual para o listener confirmar o lote de uma vez.
+     * Parte das configurações do Spring Boot (conversor JSON, etc.), como o container padrão.
+     */
+    @Bean(RENEWAL_BATCH_CONTAINER_FACTORY)
+    @ConditionalOnProperty(name = "renewal.consumer.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory renewalBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${renewal.consumer.batch.size}") int batchSize,
+            @Value("${renewal.consumer.batch.receive-timeout-ms}") long receiveTimeoutMs) {
+        return batchContainerFactory(configurer, connectionFactory, batchSize, receiveTimeoutMs);
+    }
+
+    /*
+     * Container do cancelamento em lote (subscription.cancel): o lote sai com batch-size eventos ou quando a fila
+     * fica receive-timeout sem mensagens novas.
+     */
+    @Bean(CANCEL_BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory cancelBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${subscription.cancel.batch.size}") int batchSize,
+            @Value("${subscription.cancel.batch.receive-timeout-ms}") long receiveTimeoutMs) {
+        return batchContainerFactory(configurer, connectionFactory, batchSize, receiveTimeoutMs);
+    }
+
+    private SimpleRabbitListenerContainerFactory batchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            int batchSize, long receiveTimeoutMs) {
+        var factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(batchSize);
+        factory.setReceiveTimeout(receiveTimeoutMs);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
 }
@@ -0,0 +1,26 @@
+package com.desafiotecnico.subscription.consumers;
+
+import com.desafiotecnico.subscription.config.RabbitMQConfig;
+import com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.service.PaymentTransactionService;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentGatewayResponseConsumer {
+
+    private final PaymentTransactionService paymentTransactionService;
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_PAYMENT_GATEWAY_RESPONSE, concurrency = "10")
+    @Timed(value = "renewal.consumer.processing", extraTags = { "queue", RabbitMQConfig.QUEUE_PAYMENT_GATEWAY_RESPONSE })
+    public void consumePaymentGatewayResponse(PaymentGatewayResponse response) {
+        log.debug("Mensagem de QUEUE_PAYMENT_GATEWAY_RESPONSE recebida via RabbitMQ: {}", response);
+        paymentTransactionService.settlePayment(response);
+    }
+}
@@ -25,7 +25,7 @@ public class PaymentTransactionCancelConsumer {
                 event.getTransactionId(),
                 event.getSubscriptionId());
 
-        paymentTransactionService.cancelTransaction(event.getTransactionId(),
+        paymentTransactionService.cancelTransaction(event,
                 "Renovação falhou após máximo de tentativas.", PaymentTransactionStatus.ABORTED);
     }
 }
@@ -3,12 +3,27 @@ package com.desafiotecnico.subscription.consumers;
 import com.desafiotecnico.subscription.config.RabbitMQConfig;
 import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
 import com.desafiotecnico.subscription.service.SubscriptionService;
+import com.rabbitmq.client.Channel;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/*
+ * Cancelamentos em lote: depois de um incidente no gateway chegam milhares de eventos de uma vez, e cada lote
+ * vira um único UPDATE (SubscriptionService.cancelSubscriptions). Assinaturas não encontradas são reenviadas
+ * com atraso pelo próprio serviço. Se o lote falhar no banco, os eventos são refeitos um a um: o que falhar
+ * sozinho é reagendado com atraso (SubscriptionService.retryFailedCancel) e o resto é confirmado, então um id
+ * problemático não devolve o lote inteiro para a fila. Só volta para a fila o evento que nem o reagendamento
+ * conseguiu gravar (banco fora).
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -16,13 +31,65 @@ public class SubscriptionCancelConsumer {
 
     private final SubscriptionService subscriptionService;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL)
-    public void consumeSubscriptionCancel(SubscriptionCancelEvent event) {
-        log.info("Mensagem de cancelamento de inscrição recebida: {}, motivo: {}",
-                event.getSubscriptionId(),
-                event.getReason());
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL,
+            containerFactory = RabbitMQConfig.CANCEL_BATCH_CONTAINER_FACTORY)
+    public void consumeSubscriptionCancelBatch(List<Message<SubscriptionCancelEvent>> messages, Channel channel) {
+        log.info("Lote de {} mensagens de cancelamento de inscrição recebido", messages.size());
+        long lastTag = messages.stream().mapToLong(this::deliveryTag).max().orElseThrow();
+
+        try {
+            subscriptionService.cancelSubscriptions(messages.stream().map(Message::getPayload).toList());
+            basicAck(channel, lastTag);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Erro ao cancelar lote de {} inscrições. Cancelando uma a uma.", messages.size(), e);
+        }
+
+        long ackUpTo = -1;
+        for (var message : messages) {
+            long tag = deliveryTag(message);
+            if (cancelAlone(message.getPayload())) {
+                ackUpTo = Math.max(ackUpTo, tag);
+            } else {
+                try {
+                    channel.basicNack(tag, false, true);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao devolver o cancelamento para a fila", e);
+                }
+            }
+        }
+        if (ackUpTo >= 0) {
+            basicAck(channel, ackUpTo);
+        }
+    }
 
-        subscriptionService.cancelSubscription(event.getSubscriptionId(), event.getReason());
+    // Cancela o evento sozinho e, se ainda falhar, reagenda com atraso. false só se nem o reagendamento gravar.
+    private boolean cancelAlone(SubscriptionCancelEvent event) {
+        try {
+            subscriptionService.cancelSubscriptions(List.of(event));
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Erro ao cancelar a inscrição {}. Reagendando.", event.getSubscriptionId(), e);
+        }
+        try {
+            subscriptionService.retryFailedCancel(event);
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Falha ao reagendar o cancelamento da inscrição {}. Devolvendo para a fila.",
+                    event.getSubscriptionId(), e);
+            return false;
+        }
+    }
+
+    private long deliveryTag(Message<?> message) {
+        return (Long) message.getHeaders().get(AmqpHeaders.DELIVERY_TAG);
+    }
 
+    private void basicAck(Channel channel, long tag) {
+        try {
+            channel.basicAck(tag, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao confirmar o lote de cancelamentos", e);
+        }
     }
 }
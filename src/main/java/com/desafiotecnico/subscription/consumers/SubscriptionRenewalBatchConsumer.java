@@ -0,0 +1,127 @@
+package com.desafiotecnico.subscription.consumers;
+
+import com.desafiotecnico.subscription.config.RabbitMQConfig;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.service.PaymentBatchResult;
+import com.desafiotecnico.subscription.service.PaymentTransactionService;
+import com.rabbitmq.client.Channel;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.Message;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+ * Consumo em lote da fila de renovação: recebe até renewal.consumer.batch.size mensagens por chamada e processa
+ * todas com PaymentTransactionService.startPaymentTransactions. O ack é manual e por mensagem conforme o
+ * PaymentBatchResult: as rejeitadas vão para a DLQ (como no consumo unitário), as que não chegaram a ser cobradas
+ * voltam para a fila e o restante é confirmado com um único basicAck(multiple=true) até a maior delivery tag
+ * restante. O lote inteiro só volta para a fila se o erro acontecer antes do serviço (nada foi reivindicado).
+ * Cópias da mesma transação no lote (redelivery, reenvio com atraso) são confirmadas antes do serviço: só a de
+ * tentativa mais recente segue, para que o ack ou nack de uma transação valha para uma única mensagem.
+ */
+@Service
+@ConditionalOnProperty(name = "renewal.consumer.batch.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class SubscriptionRenewalBatchConsumer {
+
+    private final PaymentTransactionService paymentTransactionService;
+    private final MeterRegistry meterRegistry;
+
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START,
+            containerFactory = RabbitMQConfig.RENEWAL_BATCH_CONTAINER_FACTORY,
+            concurrency = "${renewal.consumer.batch.concurrency}")
+    @Timed(value = "renewal.consumer.batch", extraTags = { "queue", RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START })
+    public void consumePaymentTransactionStartBatch(List<Message<PaymentTransactionEvent>> messages,
+            Channel channel) {
+        log.debug("Lote de {} mensagens de QUEUE_SUBSCRIPTION_RENEWAL_START recebido via RabbitMQ", messages.size());
+        long lastTag = messages.stream().mapToLong(this::deliveryTag).max().orElseThrow();
+
+        Map<UUID, Message<PaymentTransactionEvent>> unique = new LinkedHashMap<>();
+        for (var message : messages) {
+            unique.merge(message.getPayload().getTransactionId(), message,
+                    (kept, copy) -> attempt(copy.getPayload()) > attempt(kept.getPayload()) ? copy : kept);
+        }
+        Set<Long> processedTags = new HashSet<>();
+        unique.values().forEach(message -> processedTags.add(deliveryTag(message)));
+        if (unique.size() < messages.size()) {
+            log.info("{} cópias de transações repetidas no lote de renovação. Confirmando sem processar.",
+                    messages.size() - unique.size());
+        }
+
+        var events = unique.values().stream().map(Message::getPayload).toList();
+        events.forEach(event -> SubscriptionRenewalConsumer.recordQueueLag(meterRegistry, event));
+        PaymentBatchResult result;
+        try {
+            result = paymentTransactionService.startPaymentTransactions(events);
+        } catch (RuntimeException e) {
+            log.error("Erro processando lote de {} mensagens de renovação. Devolvendo para a fila.",
+                    messages.size(), e);
+            basicNack(channel, lastTag, true, true);
+            return;
+        }
+
+        Set<UUID> rejected = transactionIds(result.rejected());
+        Set<UUID> requeued = transactionIds(result.requeued());
+        long ackUpTo = -1;
+        for (var message : messages) {
+            long tag = deliveryTag(message);
+            var transactionId = message.getPayload().getTransactionId();
+            if (!processedTags.contains(tag)) {
+                ackUpTo = Math.max(ackUpTo, tag);
+            } else if (rejected.contains(transactionId)) {
+                basicNack(channel, tag, false, false);
+            } else if (requeued.contains(transactionId)) {
+                basicNack(channel, tag, false, true);
+            } else {
+                ackUpTo = Math.max(ackUpTo, tag);
+            }
+        }
+        if (ackUpTo >= 0) {
+            try {
+                channel.basicAck(ackUpTo, true);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao confirmar o lote de renovação", e);
+            }
+        }
+    }
+
+    // Cada retentativa gravada incrementa um dos contadores, então a soma ordena as tentativas da transação.
+    private int attempt(PaymentTransactionEvent event) {
+        return event.getRejectedPaymentCount() + event.getGatewayErrorCount();
+    }
+
+    private Set<UUID> transactionIds(List<PaymentTransactionEvent> events) {
+        Set<UUID> ids = new HashSet<>();
+        events.forEach(event -> ids.add(event.getTransactionId()));
+        return ids;
+    }
+
+    private long deliveryTag(Message<?> message) {
+        return (Long) message.getHeaders().get(AmqpHeaders.DELIVERY_TAG);
+    }
+
+    private void basicNack(Channel channel, long tag, boolean multiple, boolean requeue) {
+        try {
+            channel.basicNack(tag, multiple, requeue);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao rejeitar mensagens do lote de renovação", e);
+        }
+    }
+}
@@ -4,22 +4,46 @@ import com.desafiotecnico.subscription.config.RabbitMQConfig;
 import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
 import com.desafiotecnico.subscription.service.PaymentTransactionService;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+
+// Consumo unitário; com renewal.consumer.batch.enabled=true quem consome a fila é o SubscriptionRenewalBatchConsumer.
 @Service
+@ConditionalOnProperty(name = "renewal.consumer.batch.enabled", havingValue = "false", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class SubscriptionRenewalConsumer {
 
     private final PaymentTransactionService paymentTransactionService;
+    private final MeterRegistry meterRegistry;
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, concurrency = "100")
+    // "min-max": o container adiciona consumidores sob carga e remove os ociosos.
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, concurrency = "${renewal.consumer.concurrency}")
+    @Timed(value = "renewal.consumer.processing", extraTags = { "queue", RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START })
     public void consumePaymentTransactionStartationStart(PaymentTransactionEvent event) {
-        log.info("Mensagem de QUEUE_SUBSCRIPTION_RENEWAL_START recebida via RabbitMQ: {}", event);
+        log.debug("Mensagem de QUEUE_SUBSCRIPTION_RENEWAL_START recebida via RabbitMQ: {}", event);
+        recordQueueLag(meterRegistry, event);
         paymentTransactionService.startPaymentTransaction(event);
     }
+
+    // Tempo entre o momento previsto de entrega (outbox + atraso) e o consumo.
+    static void recordQueueLag(MeterRegistry meterRegistry, PaymentTransactionEvent event) {
+        if (event.getDueAt() <= 0) {
+            return;
+        }
+        boolean retry = event.getRejectedPaymentCount() > 0 || event.getGatewayErrorCount() > 0;
+        Timer.builder("renewal.queue.lag")
+                .tag("retry", String.valueOf(retry))
+                .register(meterRegistry)
+                .record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - event.getDueAt())));
+    }
 }
@@ -0,0 +1,40 @@
+package com.desafiotecnico.subscription.controller;
+
+import com.desafiotecnico.subscription.dto.request.PaymentCallbackRequest;
+import com.desafiotecnico.subscription.gateway.CallbackSignature;
+import com.desafiotecnico.subscription.service.PaymentTransactionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/payments")
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentCallbackController {
+
+    private final PaymentTransactionService paymentTransactionService;
+    private final CallbackSignature callbackSignature;
+
+    /*
+     * Só enfileira callbacks assinados pelo gateway (CallbackSignature); os demais recebem 401.
+     */
+    @PostMapping("/callback")
+    public ResponseEntity<Void> paymentCallback(@RequestBody @Valid PaymentCallbackRequest request,
+            @RequestHeader(value = CallbackSignature.HEADER, required = false) String signature) {
+        if (!callbackSignature.verify(request, signature)) {
+            log.warn("Callback sem assinatura válida para transação {}. Rejeitado.", request.getTransactionId());
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        log.info("Callback do gateway recebido para transação {}", request.getTransactionId());
+        paymentTransactionService.registerCallback(request);
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -1,26 +1,68 @@
 package com.desafiotecnico.subscription.controller;
 
 import com.desafiotecnico.subscription.dto.request.SubscriptionRenewalTrigger;
-
+import com.desafiotecnico.subscription.dto.response.RenewalJobResponse;
+import com.desafiotecnico.subscription.dto.response.RenewalProgressResponse;
+import com.desafiotecnico.subscription.service.RenewalJobService;
 import com.desafiotecnico.subscription.service.TriggersService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/triggers")
 @RequiredArgsConstructor
 public class TriggersController {
 
     private final TriggersService triggersService;
+    private final RenewalJobService renewalJobService;
 
+    /*
+     * Só cria o job e responde 202 com o id; o processamento roda em background. Com outro job em andamento
+     * para a mesma data, responde 409 com o id dele (RENEWAL_JOB_RUNNING).
+     */
     @PostMapping("/renewal")
-    public ResponseEntity<Void> triggerRenovation(@RequestBody @Valid SubscriptionRenewalTrigger request) {
-        triggersService.triggerRenovation(request.getMaxSubscriptions(), request.getDateToProcess());
-        return ResponseEntity.ok().build();
+    public ResponseEntity<RenewalJobResponse> triggerRenovation(@RequestBody @Valid SubscriptionRenewalTrigger request) {
+        var job = renewalJobService.start(request.getMaxSubscriptions(), request.getDateToProcess());
+        return ResponseEntity.accepted()
+                .location(URI.create("/triggers/renewal/jobs/" + job.getId()))
+                .body(RenewalJobResponse.fromInternal(job, Map.of()));
+    }
+
+    @GetMapping("/renewal/jobs/{jobId}")
+    public ResponseEntity<RenewalJobResponse> renewalJob(@PathVariable UUID jobId) {
+        return renewalJobService.find(jobId)
+                .map(job -> ResponseEntity.ok(
+                        RenewalJobResponse.fromInternal(job, renewalJobService.transactionsByStatus(jobId))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/renewal/jobs/{jobId}")
+    public ResponseEntity<Void> cancelRenewalJob(@PathVariable UUID jobId) {
+        if (renewalJobService.cancel(jobId)) {
+            return ResponseEntity.accepted().build();
+        }
+        return renewalJobService.find(jobId).isPresent()
+                ? ResponseEntity.status(409).build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/renewal/{date}")
+    public ResponseEntity<RenewalProgressResponse> renewalProgress(
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(RenewalProgressResponse.fromInternal(date, triggersService.progress(date)));
     }
 }
@@ -0,0 +1,52 @@
+package com.desafiotecnico.subscription.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Mensagem pendente de publicação no RabbitMQ. É gravada na mesma transação da alteração de negócio
+ * e removida pelo OutboxRelay depois que o broker confirma o recebimento.
+ */
+@Entity
+@Table(name = "outbox", indexes = @Index(name = "idx_outbox_created_at", columnList = "created_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    private String exchange;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "type_id")
+    private String typeId;
+
+    @Column(nullable = false)
+    private byte[] payload;
+
+    @Column(name = "delay_ms")
+    private Long delayMs;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // Lease do OutboxRelay que reivindicou a linha; nulo enquanto ninguém a está publicando.
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+}
@@ -27,6 +27,8 @@ public class PaymentTransaction {
 
     private String status;
 
+    // Chave de partição da tabela (ver migration V3)
+    @Column(nullable = false)
     private LocalDateTime dataInicio;
 
     private LocalDateTime dataFinalizacao;
@@ -36,4 +38,20 @@ public class PaymentTransaction {
 
     @Column(name = "cancellation_reason")
     private String cancellationReason;
+
+    // Usado no modo callback, em que o evento original não está disponível quando a resposta chega.
+    @Column(name = "rejected_payment_count")
+    private Integer rejectedPaymentCount;
+
+    // Fim do lease da reivindicação enquanto PROCESSING (ver migration V6).
+    @Column(name = "processing_until")
+    private LocalDateTime processingUntil;
+
+    // Token de quem reivindicou a transação enquanto PROCESSING (ver migration V8).
+    @Column(name = "processing_owner")
+    private UUID processingOwner;
+
+    // Job de renovação que criou a transação (nulo na renovação agendada).
+    @Column(name = "renewal_job_id")
+    private UUID renewalJobId;
 }
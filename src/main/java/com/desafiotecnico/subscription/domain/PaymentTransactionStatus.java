@@ -1,5 +1,7 @@
 package com.desafiotecnico.subscription.domain;
 
+import java.util.List;
+
 public enum PaymentTransactionStatus {
     CREATED,
     PROCESSING,
@@ -9,4 +11,21 @@ public enum PaymentTransactionStatus {
     PENDING_RETRY,
     ABORTED,
     VOIDED;
+
+    /*
+     * Máquina de estados usada pelas transições condicionais do PaymentTransactionRepository:
+     * CREATED, PENDING_RETRY e GATEWAY_ERROR podem ser reivindicadas (PROCESSING, também quando o lease de
+     * quem reivindicou venceu); de PROCESSING saem o resultado final ou uma nova espera (PENDING_RETRY,
+     * GATEWAY_ERROR). Finalizadas não mudam mais, a não ser pelo cancelamento da DLQ, que vale para qualquer
+     * transação aberta.
+     * VOIDED também é final: não volta a ser processada e é arquivada com as demais (PaymentTransactionArchiver).
+     */
+    public static final List<String> CLAIMABLE = List.of(CREATED.name(), PENDING_RETRY.name(), GATEWAY_ERROR.name());
+
+    public static final List<String> FINAL = List.of(APPROVED.name(), DECLINED.name(), ABORTED.name(),
+            VOIDED.name());
+
+    public boolean isFinal() {
+        return FINAL.contains(name());
+    }
 }
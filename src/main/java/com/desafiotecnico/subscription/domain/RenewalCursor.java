@@ -0,0 +1,21 @@
+package com.desafiotecnico.subscription.domain;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+ * Posição do keyset (expiration_date, id) usada para percorrer as assinaturas vencidas em blocos.
+ * O cursor inicial usa o menor UUID possível para que a primeira página comece do início do dia.
+ */
+public record RenewalCursor(LocalDate expirationDate, UUID id) {
+
+    private static final UUID MIN_UUID = new UUID(0L, 0L);
+
+    public static RenewalCursor start(LocalDate date) {
+        return new RenewalCursor(date, MIN_UUID);
+    }
+
+    public static RenewalCursor after(Subscription subscription) {
+        return new RenewalCursor(subscription.getExpirationDate(), subscription.getId());
+    }
+}
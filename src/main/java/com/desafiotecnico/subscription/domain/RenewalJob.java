@@ -0,0 +1,55 @@
+package com.desafiotecnico.subscription.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Execução assíncrona do trigger de renovação. O progresso por fatia fica em renewal_shard_leases; aqui ficam
+ * o total encontrado e o heartbeat da instância que executa o job.
+ */
+@Entity
+@Table(name = "renewal_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenewalJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "max_subscriptions", nullable = false)
+    private Integer maxSubscriptions;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private RenewalJobStatus status;
+
+    @Column(nullable = false)
+    private Integer found;
+
+    private String owner;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,8 @@
+package com.desafiotecnico.subscription.domain;
+
+public enum RenewalJobStatus {
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,48 @@
+package com.desafiotecnico.subscription.domain;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/*
+ * Fatia do conjunto de assinaturas vencidas: faixa contígua de ids (UUID aleatório, então as faixas têm
+ * tamanhos equivalentes a um hash). Faixa em vez de hash(id) % count para que cada fatia seja lida pelo índice
+ * (expiration_date, status, id) sem filtrar as linhas das outras fatias.
+ * A ordem é a do Postgres para uuid: bytes sem sinal, o que equivale a comparar msb e lsb sem sinal.
+ */
+public record RenewalShard(int index, int count) {
+
+    private static final UUID MAX_UUID = new UUID(-1L, -1L);
+
+    public RenewalShard {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Fatia inválida: " + index + "/" + count);
+        }
+    }
+
+    public static RenewalShard all() {
+        return new RenewalShard(0, 1);
+    }
+
+    /*
+     * Cursor inicial: o keyset é exclusivo, então começa no id imediatamente anterior à faixa.
+     */
+    public RenewalCursor start(LocalDate date) {
+        return index == 0 ? RenewalCursor.start(date) : new RenewalCursor(date, predecessor(boundary(index)));
+    }
+
+    public UUID upperId() {
+        return index == count - 1 ? MAX_UUID : predecessor(boundary(index + 1));
+    }
+
+    private UUID boundary(int shard) {
+        long msb = BigInteger.valueOf(shard).shiftLeft(64).divide(BigInteger.valueOf(count)).longValue();
+        return new UUID(msb, 0L);
+    }
+
+    private static UUID predecessor(UUID id) {
+        return id.getLeastSignificantBits() == 0
+                ? new UUID(id.getMostSignificantBits() - 1, -1L)
+                : new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits() - 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.desafiotecnico.subscription.domain;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+ * Linha de renewal_shard_leases: quem está processando a fatia, até quando, e até onde já foi commitado.
+ */
+public record RenewalShardLease(LocalDate runDate, int shard, int shardCount, String status, String owner,
+        LocalDateTime leaseUntil, LocalDate lastExpirationDate, UUID lastId, int processed) {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+
+    public RenewalShard toShard() {
+        return new RenewalShard(shard, shardCount);
+    }
+
+    /*
+     * Posição a partir da qual continuar: a última commitada ou o início da fatia.
+     */
+    public RenewalCursor cursor() {
+        return lastId == null ? toShard().start(runDate) : new RenewalCursor(lastExpirationDate, lastId);
+    }
+}
@@ -8,7 +8,7 @@ import lombok.NoArgsConstructor;
 import java.util.UUID;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PaymentTransactionEvent {
@@ -19,4 +19,17 @@ public class PaymentTransactionEvent {
     @Builder.Default
     private int rejectedPaymentCount = 0;
 
+    // Tentativas que falharam por indisponibilidade do gateway (5xx, timeout, conexão)
+    @Builder.Default
+    private int gatewayErrorCount = 0;
+
+    // Epoch millis do data_inicio da transação, chave de partição de payment_transactions; 0 em mensagens antigas
+    private long startedAt;
+
+    // Epoch millis da primeira tentativa de cobrança; base do prazo total de retentativas
+    private long firstAttemptAt;
+
+    // Epoch millis em que a mensagem deveria ser entregue (gravação no outbox + atraso); base do lag da fila
+    private long dueAt;
+
 }
@@ -15,4 +15,6 @@ public class SubscriptionCancelEvent {
 
     private UUID subscriptionId;
     private String reason;
+    // Tentativas de cancelamento já feitas, para o reenvio com atraso do cancelamento em lote.
+    private int attempt;
 }
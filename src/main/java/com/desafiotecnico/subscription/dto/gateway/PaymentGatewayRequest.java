@@ -1,5 +1,6 @@
 package com.desafiotecnico.subscription.dto.gateway;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -11,7 +12,10 @@ import java.util.UUID;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PaymentGatewayRequest {
     private Integer amount;
     private UUID customId;
+    // Preenchido só no modo callback: o gateway avisa o resultado nessa URL.
+    private String callbackUrl;
 }
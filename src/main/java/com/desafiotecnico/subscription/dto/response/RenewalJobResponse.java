@@ -0,0 +1,63 @@
+package com.desafiotecnico.subscription.dto.response;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.domain.RenewalJob;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenewalJobResponse {
+
+    private UUID id;
+    private LocalDate date;
+    private RenewalJobStatus status;
+    private int maxSubscriptions;
+
+    // Assinaturas selecionadas e com transação criada (blocos commitados)
+    private int found;
+    // Transações ainda no fluxo de pagamento (criadas, em processamento ou aguardando nova tentativa)
+    private long enqueued;
+    private long approved;
+    private long declined;
+    private long aborted;
+
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+
+    public static RenewalJobResponse fromInternal(RenewalJob job, Map<String, Long> transactionsByStatus) {
+        return RenewalJobResponse.builder()
+                .id(job.getId())
+                .date(job.getRunDate())
+                .status(job.getStatus())
+                .maxSubscriptions(job.getMaxSubscriptions())
+                .found(job.getFound())
+                .enqueued(count(transactionsByStatus, PaymentTransactionStatus.CREATED)
+                        + count(transactionsByStatus, PaymentTransactionStatus.PROCESSING)
+                        + count(transactionsByStatus, PaymentTransactionStatus.PENDING_RETRY)
+                        + count(transactionsByStatus, PaymentTransactionStatus.GATEWAY_ERROR))
+                .approved(count(transactionsByStatus, PaymentTransactionStatus.APPROVED))
+                .declined(count(transactionsByStatus, PaymentTransactionStatus.DECLINED))
+                .aborted(count(transactionsByStatus, PaymentTransactionStatus.ABORTED)
+                        + count(transactionsByStatus, PaymentTransactionStatus.VOIDED))
+                .errorMessage(job.getErrorMessage())
+                .createdAt(job.getCreatedAt())
+                .finishedAt(job.getFinishedAt())
+                .build();
+    }
+
+    private static long count(Map<String, Long> transactionsByStatus, PaymentTransactionStatus status) {
+        return transactionsByStatus.getOrDefault(status.name(), 0L);
+    }
+}
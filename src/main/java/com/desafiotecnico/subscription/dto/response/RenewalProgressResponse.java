@@ -0,0 +1,46 @@
+package com.desafiotecnico.subscription.dto.response;
+
+import com.desafiotecnico.subscription.domain.RenewalShardLease;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+public class RenewalProgressResponse {
+
+    private LocalDate date;
+    private int processed;
+    private long shardsDone;
+    private List<Shard> shards;
+
+    @Data
+    @Builder
+    public static class Shard {
+        private int shard;
+        private String status;
+        private String owner;
+        private LocalDateTime leaseUntil;
+        private int processed;
+    }
+
+    public static RenewalProgressResponse fromInternal(LocalDate date, List<RenewalShardLease> leases) {
+        return RenewalProgressResponse.builder()
+                .date(date)
+                .processed(leases.stream().mapToInt(RenewalShardLease::processed).sum())
+                .shardsDone(leases.stream().filter(lease -> RenewalShardLease.DONE.equals(lease.status())).count())
+                .shards(leases.stream()
+                        .map(lease -> Shard.builder()
+                                .shard(lease.shard())
+                                .status(lease.status())
+                                .owner(lease.owner())
+                                .leaseUntil(lease.leaseUntil())
+                                .processed(lease.processed())
+                                .build())
+                        .toList())
+                .build();
+    }
+}
@@ -0,0 +1,17 @@
+package com.desafiotecnico.subscription.error;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public class RenewalJobRunningException extends RuntimeException {
+
+    // Job que já está rodando para a data pedida.
+    private final UUID jobId;
+
+    public RenewalJobRunningException(UUID jobId) {
+        super("O job de renovação " + jobId + " já está em andamento para esta data.");
+        this.jobId = jobId;
+    }
+}
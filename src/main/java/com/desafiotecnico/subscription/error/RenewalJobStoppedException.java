@@ -0,0 +1,8 @@
+package com.desafiotecnico.subscription.error;
+
+public class RenewalJobStoppedException extends RuntimeException {
+
+    public RenewalJobStoppedException(String message) {
+        super(message);
+    }
+}
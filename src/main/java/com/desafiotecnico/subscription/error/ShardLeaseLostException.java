@@ -0,0 +1,8 @@
+package com.desafiotecnico.subscription.error;
+
+public class ShardLeaseLostException extends RuntimeException {
+
+    public ShardLeaseLostException(String message) {
+        super(message);
+    }
+}
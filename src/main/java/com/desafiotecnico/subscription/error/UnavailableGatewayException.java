@@ -1,13 +1,25 @@
 package com.desafiotecnico.subscription.error;
 
+import lombok.Getter;
 import org.springframework.web.client.RestClientException;
 
+@Getter
 public class UnavailableGatewayException extends RuntimeException {
+
+    // Sugestão de espera antes de tentar de novo; zero quando não há estimativa.
+    private final long retryAfterMs;
+
     public UnavailableGatewayException(String message) {
+        this(message, 0);
+    }
+
+    public UnavailableGatewayException(String message, long retryAfterMs) {
         super(message);
+        this.retryAfterMs = retryAfterMs;
     }
 
     public UnavailableGatewayException(String string, RestClientException e) {
         super(string, e);
+        this.retryAfterMs = 0;
     }
 }
@@ -0,0 +1,114 @@
+package com.desafiotecnico.subscription.gateway;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Limite de chamadas simultâneas ao gateway ajustado por AIMD: cresce de 1 em 1 enquanto as respostas
+ * chegam abaixo do limiar de latência e é multiplicado por backoffRatio quando o gateway fica lento ou
+ * devolve erro 5xx/timeout. Usa ReentrantLock em vez de synchronized para não prender virtual threads.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdMs;
+    private final double backoffRatio;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitReleased = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMs,
+            double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /*
+     * Espera até timeoutMs por uma vaga. Retorna false se o limite continuar atingido.
+     */
+    public boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = permitReleased.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Resposta recebida (inclusive 4xx, que não indica sobrecarga do gateway).
+     */
+    public void onSuccess(long latencyMs) {
+        release(latencyMs > latencyThresholdMs);
+    }
+
+    /*
+     * 5xx, timeout ou falha de conexão.
+     */
+    public void onDropped() {
+        release(true);
+    }
+
+    /*
+     * Devolve a vaga sem ajustar o limite (a chamada não chegou a ser feita).
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(boolean overloaded) {
+        lock.lock();
+        try {
+            // Só aumenta quando o limite está de fato sendo usado, para não crescer sem carga.
+            if (overloaded) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight >= (int) limit / 2) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            inFlight--;
+            permitReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
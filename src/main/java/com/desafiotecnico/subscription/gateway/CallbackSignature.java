@@ -0,0 +1,55 @@
+package com.desafiotecnico.subscription.gateway;
+
+import com.desafiotecnico.subscription.dto.request.PaymentCallbackRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+/*
+ * Assinatura do callback do gateway: HMAC-SHA256, com o segredo compartilhado
+ * integration.payments.callback-secret, sobre "transactionId.success.message", enviada em hexadecimal no
+ * header X-Gateway-Signature. Sem segredo configurado nenhum callback é aceito.
+ */
+@Component
+public class CallbackSignature {
+
+    public static final String HEADER = "X-Gateway-Signature";
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final byte[] secret;
+
+    public CallbackSignature(@Value("${integration.payments.callback-secret}") String secret) {
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String sign(PaymentCallbackRequest request) {
+        try {
+            var mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return HexFormat.of().formatHex(mac.doFinal(payload(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC indisponível para assinar o callback", e);
+        }
+    }
+
+    // Comparação em tempo constante, para não vazar a assinatura esperada byte a byte.
+    public boolean verify(PaymentCallbackRequest request, String signature) {
+        if (secret.length == 0 || signature == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(request).getBytes(StandardCharsets.US_ASCII),
+                signature.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String payload(PaymentCallbackRequest request) {
+        return request.getTransactionId() + "." + request.isSuccess() + "."
+                + (request.getMessage() == null ? "" : request.getMessage());
+    }
+}
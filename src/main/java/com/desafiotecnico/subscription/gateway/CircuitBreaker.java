@@ -0,0 +1,192 @@
+package com.desafiotecnico.subscription.gateway;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/*
+ * Circuit breaker por janela de contagem: abre quando a taxa de falhas das últimas slidingWindowSize chamadas
+ * passa do limite, rejeita tudo durante openDurationMs e depois libera halfOpenPermittedCalls chamadas de teste.
+ * Se todas as chamadas de teste derem certo fecha de novo; qualquer falha volta para OPEN.
+ * Cada permissão carrega a geração do estado em que foi concedida (muda a cada transição). O resultado de uma
+ * chamada que termina depois de uma transição é ignorado: ela não conta na janela nova nem nas vagas de teste
+ * de um HALF_OPEN posterior.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    // Retorno do tryAcquirePermission quando a chamada não é permitida.
+    public static final long NOT_PERMITTED = -1;
+
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openDurationMs;
+    private final int halfOpenPermittedCalls;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final boolean[] window;
+
+    private State state = State.CLOSED;
+    private int windowPosition;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSuccesses;
+    private long generation;
+
+    public CircuitBreaker(double failureRateThreshold, int slidingWindowSize, int minimumCalls, long openDurationMs,
+            int halfOpenPermittedCalls) {
+        this(failureRateThreshold, slidingWindowSize, minimumCalls, openDurationMs, halfOpenPermittedCalls,
+                System::currentTimeMillis);
+    }
+
+    CircuitBreaker(double failureRateThreshold, int slidingWindowSize, int minimumCalls, long openDurationMs,
+            int halfOpenPermittedCalls, LongSupplier clock) {
+        this.failureRateThreshold = failureRateThreshold;
+        this.window = new boolean[slidingWindowSize];
+        this.minimumCalls = minimumCalls;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenPermittedCalls = halfOpenPermittedCalls;
+        this.clock = clock;
+    }
+
+    /*
+     * Retorna a permissão (a geração atual), a ser passada para onSuccess, onFailure ou releasePermission, ou
+     * NOT_PERMITTED.
+     */
+    public long tryAcquirePermission() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (clock.getAsLong() - openedAt < openDurationMs) {
+                    return NOT_PERMITTED;
+                }
+                transitionTo(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (halfOpenInFlight + halfOpenSuccesses >= halfOpenPermittedCalls) {
+                    return NOT_PERMITTED;
+                }
+                halfOpenInFlight++;
+            }
+            return generation;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Devolve uma permissão cuja chamada não deve contar na janela (não foi feita, ou falhou por motivo que não
+     * é do gateway). Em HALF_OPEN libera a vaga de teste para outra chamada.
+     */
+    public void releasePermission(long permission) {
+        lock.lock();
+        try {
+            if (permission == generation && state == State.HALF_OPEN) {
+                halfOpenInFlight--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                halfOpenInFlight--;
+                halfOpenSuccesses++;
+                if (halfOpenSuccesses >= halfOpenPermittedCalls) {
+                    transitionTo(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                record(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure(long permission) {
+        lock.lock();
+        try {
+            if (permission != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                transitionTo(State.OPEN);
+            } else if (state == State.CLOSED) {
+                record(true);
+                if (windowCount >= minimumCalls && (double) windowFailures / windowCount >= failureRateThreshold) {
+                    transitionTo(State.OPEN);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Quanto falta para o circuito sair de OPEN; zero nos outros estados.
+     */
+    public long remainingOpenMillis() {
+        lock.lock();
+        try {
+            return state == State.OPEN ? Math.max(0, openDurationMs - (clock.getAsLong() - openedAt)) : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowPosition]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPosition] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPosition = (windowPosition + 1) % window.length;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker do gateway: {} -> {}", state, newState);
+        state = newState;
+        generation++;
+        halfOpenInFlight = 0;
+        halfOpenSuccesses = 0;
+        if (newState == State.OPEN) {
+            openedAt = clock.getAsLong();
+        }
+        if (newState == State.CLOSED) {
+            windowPosition = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+}
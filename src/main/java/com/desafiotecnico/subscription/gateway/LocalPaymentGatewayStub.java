@@ -0,0 +1,72 @@
+package com.desafiotecnico.subscription.gateway;
+
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
+import com.desafiotecnico.subscription.dto.request.PaymentCallbackRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Gateway falso para rodar o modo callback localmente (profile gateway-stub): aceita a cobrança na hora
+ * e chama o callbackUrl depois de um atraso, aprovando de acordo com a taxa configurada.
+ */
+@RestController
+@RequestMapping("/stub")
+@Profile("gateway-stub")
+@RequiredArgsConstructor
+@Slf4j
+public class LocalPaymentGatewayStub {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final RestClient restClient = RestClient.create();
+    private final CallbackSignature callbackSignature;
+
+    @Value("${stub.gateway.callback-delay-ms}")
+    private long callbackDelayMs;
+
+    @Value("${stub.gateway.approval-rate}")
+    private double approvalRate;
+
+    @PostMapping("/payment")
+    public ResponseEntity<Void> charge(@RequestBody PaymentGatewayRequest request) {
+        if (request.getCallbackUrl() == null) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean approved = ThreadLocalRandom.current().nextDouble() < approvalRate;
+        scheduler.schedule(() -> callback(request, approved), callbackDelayMs, TimeUnit.MILLISECONDS);
+        return ResponseEntity.accepted().build();
+    }
+
+    private void callback(PaymentGatewayRequest request, boolean approved) {
+        var callback = PaymentCallbackRequest.builder()
+                .transactionId(request.getCustomId())
+                .success(approved)
+                .message(approved ? null : "Pagamento recusado pelo stub")
+                .build();
+        try {
+            restClient.post()
+                    .uri(request.getCallbackUrl())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(CallbackSignature.HEADER, callbackSignature.sign(callback))
+                    .body(callback)
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (Exception e) {
+            log.warn("Stub não conseguiu chamar o callback da transação {}", request.getCustomId(), e);
+        }
+    }
+}
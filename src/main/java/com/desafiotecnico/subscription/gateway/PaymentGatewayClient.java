@@ -0,0 +1,142 @@
+package com.desafiotecnico.subscription.gateway;
+
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.error.UnavailableGatewayException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Acesso ao gateway de pagamento. Erros seguem as exceções do Spring Web:
+ * HttpClientErrorException (4xx), HttpServerErrorException (5xx) e ResourceAccessException (I/O e timeouts).
+ * Quando o bulkhead ou o limite adaptativo estão esgotados, ou o circuito está aberto, a chamada nem é feita
+ * e lança UnavailableGatewayException.
+ * Métricas: payment.gateway.latency (operation, outcome) para as chamadas feitas e
+ * payment.gateway.rejected (reason) para as que nem saíram.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentGatewayClient {
+
+    private final RestClient paymentGatewayRestClient;
+    private final AdaptiveConcurrencyLimiter paymentGatewayLimiter;
+    private final CircuitBreaker paymentGatewayCircuitBreaker;
+    private final Semaphore paymentGatewayBulkhead;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${integration.payments.url}")
+    private String paymentUrl;
+
+    @Value("${integration.payments.limiter.acquire-timeout-ms}")
+    private long acquireTimeoutMs;
+
+    public PaymentGatewayResponse charge(PaymentGatewayRequest request) {
+        return guarded("charge", () -> paymentGatewayRestClient.post()
+                .uri(paymentUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .body(PaymentGatewayResponse.class));
+    }
+
+    /*
+     * Modo callback: o gateway só aceita a cobrança e responde o resultado depois, no callbackUrl.
+     */
+    public void submit(PaymentGatewayRequest request) {
+        guarded("submit", () -> paymentGatewayRestClient.post()
+                .uri(paymentUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(request)
+                .retrieve()
+                .toBodilessEntity());
+    }
+
+    /*
+     * Ordem das proteções: bulkhead (teto fixo, sem espera), limite adaptativo (espera curta por vaga) e
+     * circuit breaker (com o circuito aberto a chamada é pulada e o erro informa quanto falta para reabrir).
+     */
+    private <T> T guarded(String operation, Supplier<T> call) {
+        if (!paymentGatewayBulkhead.tryAcquire()) {
+            rejected("bulkhead");
+            throw new UnavailableGatewayException("Bulkhead do gateway cheio");
+        }
+        try {
+            acquireLimiter();
+            long permission = paymentGatewayCircuitBreaker.tryAcquirePermission();
+            if (permission == CircuitBreaker.NOT_PERMITTED) {
+                paymentGatewayLimiter.onIgnored();
+                rejected("circuit_open");
+                throw new UnavailableGatewayException("Circuito do gateway aberto",
+                        paymentGatewayCircuitBreaker.remainingOpenMillis());
+            }
+            return call(operation, call, permission);
+        } finally {
+            paymentGatewayBulkhead.release();
+        }
+    }
+
+    private void acquireLimiter() {
+        try {
+            if (!paymentGatewayLimiter.tryAcquire(acquireTimeoutMs)) {
+                rejected("limiter");
+                throw new UnavailableGatewayException("Limite de concorrência do gateway atingido");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnavailableGatewayException("Interrompido aguardando vaga no gateway");
+        }
+    }
+
+    private <T> T call(String operation, Supplier<T> call, long permission) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            paymentGatewayLimiter.onSuccess((System.nanoTime() - start) / 1_000_000);
+            paymentGatewayCircuitBreaker.onSuccess(permission);
+            record(operation, "success", start);
+            return result;
+        } catch (HttpServerErrorException | ResourceAccessException e) {
+            paymentGatewayLimiter.onDropped();
+            paymentGatewayCircuitBreaker.onFailure(permission);
+            record(operation, e instanceof HttpServerErrorException ? "server_error" : "io_error", start);
+            throw e;
+        } catch (HttpClientErrorException e) {
+            // 4xx é resposta válida do gateway: não indica indisponibilidade.
+            paymentGatewayLimiter.onSuccess((System.nanoTime() - start) / 1_000_000);
+            paymentGatewayCircuitBreaker.onSuccess(permission);
+            record(operation, "client_error", start);
+            throw e;
+        } catch (RuntimeException e) {
+            // Erro do nosso lado (ex.: conversão da resposta): não diz nada sobre a saúde do gateway, então a
+            // permissão do circuito é devolvida sem contar como sucesso nem como falha.
+            paymentGatewayLimiter.onSuccess((System.nanoTime() - start) / 1_000_000);
+            paymentGatewayCircuitBreaker.releasePermission(permission);
+            record(operation, "other_error", start);
+            throw e;
+        }
+    }
+
+    private void record(String operation, String outcome, long startNanos) {
+        Timer.builder("payment.gateway.latency")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void rejected(String reason) {
+        meterRegistry.counter("payment.gateway.rejected", "reason", reason).increment();
+    }
+}
@@ -0,0 +1,118 @@
+package com.desafiotecnico.subscription.idempotency;
+
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Deduplicação das mensagens de renovação no Redis, consultada antes de qualquer acesso ao banco.
+ *
+ * Cada tentativa (transactionId + contadores de recusa e erro de gateway) é reivindicada com SET NX e TTL:
+ * redeliveries da mesma tentativa não passam, enquanto a repetição agendada, que tem contadores novos, usa
+ * outra chave. A reivindicação é liberada quando nada foi gravado (erro antes do resultado), e marcada como
+ * concluída quando o resultado da tentativa foi uma retentativa agendada. Quando a transação chega a um status
+ * final grava-se um marcador "done" para descartar duplicatas tardias sem ir ao banco. As chaves usam hash tag
+ * ({transactionId}) para ficarem no mesmo slot.
+ *
+ * Se o Redis estiver fora, a reivindicação é liberada e a proteção fica só com o status no banco.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentIdempotencyStore {
+
+    /*
+     * IN_FLIGHT: outra entrega está com a tentativa (ou caiu com ela; a chave expira pelo TTL).
+     * ALREADY_DONE: a transação já foi finalizada ou a tentativa já teve o resultado gravado.
+     */
+    public enum Claim {
+        CLAIMED,
+        IN_FLIGHT,
+        ALREADY_DONE
+    }
+
+    private static final String ATTEMPT_DONE = "done";
+
+    private static final RedisScript<Long> CLAIM_SCRIPT = RedisScript.of("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end
+            if redis.call('SET', KEYS[2], '1', 'NX', 'PX', ARGV[1]) then return 1 end
+            if redis.call('GET', KEYS[2]) == ARGV[2] then return 0 end
+            return -1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${idempotency.in-flight-ttl-seconds}")
+    private long inFlightTtlSeconds;
+
+    @Value("${idempotency.done-ttl-seconds}")
+    private long doneTtlSeconds;
+
+    public Claim tryClaim(PaymentTransactionEvent event) {
+        try {
+            Long result = redisTemplate.execute(CLAIM_SCRIPT,
+                    List.of(doneKey(event.getTransactionId()), attemptKey(event)),
+                    String.valueOf(Duration.ofSeconds(inFlightTtlSeconds).toMillis()), ATTEMPT_DONE);
+
+            if (result == null || result == 1L) {
+                return Claim.CLAIMED;
+            }
+            return result == 0L ? Claim.ALREADY_DONE : Claim.IN_FLIGHT;
+        } catch (DataAccessException e) {
+            log.warn("Redis indisponível na deduplicação da transação {}. Seguindo só com o banco.",
+                    event.getTransactionId(), e);
+            return Claim.CLAIMED;
+        }
+    }
+
+    /*
+     * Libera a tentativa atual para que a mesma mensagem, reenfileirada sem mudar os contadores, possa
+     * ser reivindicada de novo.
+     */
+    public void release(PaymentTransactionEvent event) {
+        try {
+            redisTemplate.delete(attemptKey(event));
+        } catch (DataAccessException e) {
+            log.warn("Falha ao liberar a tentativa da transação {} no Redis.", event.getTransactionId(), e);
+        }
+    }
+
+    /*
+     * A tentativa terminou sem finalizar a transação (retentativa agendada com contadores novos): duplicatas
+     * atrasadas dela são descartadas em vez de cobrarem de novo com os contadores antigos.
+     */
+    public void markAttemptDone(PaymentTransactionEvent event) {
+        try {
+            redisTemplate.opsForValue().set(attemptKey(event), ATTEMPT_DONE, Duration.ofSeconds(doneTtlSeconds));
+        } catch (DataAccessException e) {
+            log.warn("Falha ao marcar a tentativa da transação {} como concluída no Redis.",
+                    event.getTransactionId(), e);
+        }
+    }
+
+    public void markDone(UUID transactionId) {
+        try {
+            redisTemplate.opsForValue().set(doneKey(transactionId), "1", Duration.ofSeconds(doneTtlSeconds));
+        } catch (DataAccessException e) {
+            log.warn("Falha ao marcar a transação {} como finalizada no Redis.", transactionId, e);
+        }
+    }
+
+    private String doneKey(UUID transactionId) {
+        return "payment:{" + transactionId + "}:done";
+    }
+
+    private String attemptKey(PaymentTransactionEvent event) {
+        return "payment:{" + event.getTransactionId() + "}:attempt:" + event.getRejectedPaymentCount() + ":"
+                + event.getGatewayErrorCount();
+    }
+}
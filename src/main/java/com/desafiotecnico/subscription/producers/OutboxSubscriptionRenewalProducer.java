@@ -0,0 +1,108 @@
+package com.desafiotecnico.subscription.producers;
+
+import com.desafiotecnico.subscription.config.RabbitMQConfig;
+import com.desafiotecnico.subscription.domain.OutboxEvent;
+import com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.dto.event.TransactionCancelEvent;
+import com.desafiotecnico.subscription.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Não fala com o RabbitMQ: grava os eventos na tabela outbox dentro da transação corrente.
+ * A publicação acontece depois, pelo OutboxRelay, então um crash entre o commit e o envio não perde eventos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxSubscriptionRenewalProducer implements SubscriptionRenewalProducer {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final MessageConverter messageConverter;
+
+    @Override
+    @Transactional
+    public void sendRenewalStart(PaymentTransactionEvent event) {
+        log.debug("Registering renewal start message for subscription {} in outbox", event.getSubscriptionId());
+        event.setDueAt(System.currentTimeMillis());
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, event, null));
+    }
+
+    @Override
+    @Transactional
+    public void sendRenewalStart(PaymentTransactionEvent event, long delayMs) {
+        log.debug("Registering renewal start message for subscription {} in outbox with delay {}ms",
+                event.getSubscriptionId(), delayMs);
+        event.setDueAt(System.currentTimeMillis() + delayMs);
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, event, delayMs));
+    }
+
+    @Override
+    @Transactional
+    public void sendRenewalStartBatch(List<PaymentTransactionEvent> events) {
+        log.info("Registering {} renewal start messages in outbox", events.size());
+        long now = System.currentTimeMillis();
+        List<OutboxEvent> outbox = new ArrayList<>(events.size());
+        for (var event : events) {
+            event.setDueAt(now);
+            outbox.add(toOutbox(RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, event, null));
+        }
+        outboxEventRepository.saveAll(outbox);
+    }
+
+    @Override
+    @Transactional
+    public void sendCancelSubscription(SubscriptionCancelEvent event) {
+        log.info("Registering cancel subscription message for subscription {} in outbox", event.getSubscriptionId());
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL, event, null));
+    }
+
+    @Override
+    @Transactional
+    public void sendCancelSubscription(SubscriptionCancelEvent event, long delayMs) {
+        log.info("Registering cancel subscription message for subscription {} in outbox with delay {}ms",
+                event.getSubscriptionId(), delayMs);
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL, event, delayMs));
+    }
+
+    @Override
+    @Transactional
+    public void sendPaymentResponse(PaymentGatewayResponse event) {
+        log.info("Registering payment response message for transaction {} in outbox", event.getTransactionId());
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_PAYMENT_GATEWAY_RESPONSE, event, null));
+    }
+
+    @Override
+    @Transactional
+    public void sendCancelTransaction(TransactionCancelEvent event) {
+        log.info("Registering cancel transaction message for transaction {} in outbox", event.getTransactionId());
+        outboxEventRepository.save(toOutbox(RabbitMQConfig.QUEUE_PAYMENT_TRANSACTION_CANCEL, event, null));
+    }
+
+    private OutboxEvent toOutbox(String routingKey, Object event, Long delayMs) {
+        // Serializa com o mesmo conversor dos listeners, para o relay só repassar os bytes.
+        var message = messageConverter.toMessage(event, new MessageProperties());
+        var properties = message.getMessageProperties();
+
+        return OutboxEvent.builder()
+                .exchange(RabbitMQConfig.EXCHANGE_SUBSCRIPTION)
+                .routingKey(routingKey)
+                .contentType(properties.getContentType())
+                .typeId((String) properties.getHeaders().get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))
+                .payload(message.getBody())
+                .delayMs(delayMs)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.desafiotecnico.subscription.producers;
+
+import com.desafiotecnico.subscription.domain.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RabbitOutboxPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${outbox.relay.confirm-timeout-ms}")
+    private long confirmTimeoutMs;
+
+    /*
+     * Publica o lote num único canal, sem esperar confirmação mensagem a mensagem, e depois aguarda os
+     * publisher confirms. Retorna os ids confirmados (ack); os demais devem continuar no outbox.
+     */
+    public List<UUID> publish(List<OutboxEvent> events) {
+        List<CorrelationData> correlations = new ArrayList<>(events.size());
+        rabbitTemplate.invoke(operations -> {
+            for (OutboxEvent event : events) {
+                var correlation = new CorrelationData(event.getId().toString());
+                operations.send(event.getExchange(), event.getRoutingKey(), toMessage(event), correlation);
+                correlations.add(correlation);
+            }
+            return null;
+        });
+
+        return awaitConfirms(events, correlations);
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        var properties = new MessageProperties();
+        properties.setMessageId(event.getId().toString());
+        properties.setContentType(event.getContentType());
+        if (event.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, event.getTypeId());
+        }
+        if (event.getDelayMs() != null) {
+            properties.setHeader("x-delay", event.getDelayMs());
+        }
+        return new Message(event.getPayload(), properties);
+    }
+
+    private List<UUID> awaitConfirms(List<OutboxEvent> events, List<CorrelationData> correlations) {
+        List<UUID> confirmed = new ArrayList<>(events.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMs);
+
+        for (int i = 0; i < correlations.size(); i++) {
+            var event = events.get(i);
+            try {
+                var confirm = correlations.get(i).getFuture()
+                        .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (confirm.isAck()) {
+                    confirmed.add(event.getId());
+                } else {
+                    log.error("Broker recusou (nack) a mensagem {} do outbox: {}", event.getId(), confirm.getReason());
+                }
+            } catch (TimeoutException | ExecutionException e) {
+                log.error("Sem confirmação do broker para a mensagem {} do outbox", event.getId(), e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        return confirmed;
+    }
+}
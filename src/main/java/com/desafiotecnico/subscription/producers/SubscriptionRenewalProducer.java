@@ -3,13 +3,22 @@ package com.desafiotecnico.subscription.producers;
 import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
 import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
 
+import java.util.List;
+
 public interface SubscriptionRenewalProducer {
     void sendRenewalStart(PaymentTransactionEvent event);
 
     void sendRenewalStart(PaymentTransactionEvent event, long delayMs);
 
+    /*
+     * Registra o lote de uma vez. Uma falha lança e desfaz o lote inteiro junto com a transação de quem chamou.
+     */
+    void sendRenewalStartBatch(List<PaymentTransactionEvent> events);
+
     void sendCancelSubscription(SubscriptionCancelEvent event);
 
+    void sendCancelSubscription(SubscriptionCancelEvent event, long delayMs);
+
     void sendPaymentResponse(com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse event);
 
     void sendCancelTransaction(com.desafiotecnico.subscription.dto.event.TransactionCancelEvent event);
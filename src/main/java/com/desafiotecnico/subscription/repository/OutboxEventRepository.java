@@ -0,0 +1,38 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    /*
+     * Trava o próximo lote livre do outbox (sem lease ou com lease vencido). Com SKIP LOCKED, várias instâncias
+     * podem drenar a tabela em paralelo, cada uma pegando linhas diferentes. A trava só dura a transação curta
+     * da reivindicação (lease); a publicação acontece depois, fora dela.
+     */
+    @Query(value = "SELECT * FROM outbox WHERE locked_until IS NULL OR locked_until < :now " +
+            "ORDER BY created_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("limit") int limit, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.lockedUntil = :lockedUntil WHERE o.id IN :ids")
+    int lease(@Param("ids") Collection<UUID> ids, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    // Devolve ao outbox as mensagens não confirmadas, para a próxima rodada sem esperar o lease vencer.
+    @Modifying
+    @Query("UPDATE OutboxEvent o SET o.lockedUntil = NULL WHERE o.id IN :ids")
+    int releaseLease(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT min(o.createdAt) FROM OutboxEvent o")
+    LocalDateTime findOldestCreatedAt();
+}
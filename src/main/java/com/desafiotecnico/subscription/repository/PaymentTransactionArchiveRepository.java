@@ -0,0 +1,72 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * Manutenção das partições mensais de payment_transactions (ver migration V3) e cópia para o
+ * armazenamento frio (payment_transactions_archive).
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentTransactionArchiveRepository {
+
+    private static final String ARCHIVE_SQL = "WITH moved AS (" +
+            "DELETE FROM payment_transactions pt USING (" +
+            "SELECT id, data_inicio FROM payment_transactions " +
+            "WHERE data_inicio < ? AND data_finalizacao IS NOT NULL " +
+            "AND status IN (" + PaymentTransactionStatus.FINAL.stream()
+                    .map(status -> "'" + status + "'").collect(Collectors.joining(", ")) + ") " +
+            "LIMIT ? FOR UPDATE SKIP LOCKED) batch " +
+            "WHERE pt.id = batch.id AND pt.data_inicio = batch.data_inicio " +
+            "RETURNING pt.*) " +
+            "INSERT INTO payment_transactions_archive (id, subscription_id, status, data_inicio, data_finalizacao, " +
+            "price_in_cents, cancellation_reason, rejected_payment_count, renewal_job_id) " +
+            "SELECT id, subscription_id, status, data_inicio, data_finalizacao, price_in_cents, cancellation_reason, " +
+            "rejected_payment_count, renewal_job_id FROM moved";
+
+    // Partições mensais cujo limite superior já passou do horizonte (o nome segue o padrão da V3).
+    private static final String PARTITIONS_BEFORE_SQL = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'payment_transactions'::regclass " +
+            "AND c.relname ~ '^payment_transactions_y[0-9]{4}m[0-9]{2}$' " +
+            "AND to_date(substring(c.relname from '([0-9]{4}m[0-9]{2})$'), 'YYYY\"m\"MM') + INTERVAL '1 month' <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void ensurePartition(LocalDate month) {
+        jdbcTemplate.queryForList("SELECT ensure_payment_transactions_partition(?)", Object.class, month);
+    }
+
+    /*
+     * Move um lote de transações finalizadas anteriores ao horizonte. Retorna quantas linhas foram movidas.
+     */
+    public int archiveBatch(LocalDateTime horizon, int limit) {
+        return jdbcTemplate.update(ARCHIVE_SQL, Timestamp.valueOf(horizon), limit);
+    }
+
+    public List<String> findPartitionsBefore(LocalDate horizon) {
+        return jdbcTemplate.queryForList(PARTITIONS_BEFORE_SQL, String.class, horizon);
+    }
+
+    /*
+     * Remove a partição se ela estiver vazia (transações ainda abertas impedem a remoção).
+     */
+    public boolean dropIfEmpty(String partition) {
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM \"" + partition + "\")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) {
+            return false;
+        }
+        jdbcTemplate.execute("DROP TABLE IF EXISTS \"" + partition + "\"");
+        return true;
+    }
+}
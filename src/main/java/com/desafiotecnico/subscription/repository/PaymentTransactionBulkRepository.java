@@ -0,0 +1,69 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.PaymentTransaction;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+ * Operações em lote sobre payment_transactions que não passam pelo ciclo de vida do JPA.
+ */
+public interface PaymentTransactionBulkRepository {
+
+    /*
+     * Insere as transações via JDBC batch. Os ids precisam vir preenchidos, já que não há
+     * geração pelo Hibernate nesse caminho.
+     */
+    void insertAll(List<PaymentTransaction> transactions);
+
+    /*
+     * Faixa de data_inicio passada junto do id nos UPDATEs: a chave de payment_transactions é (id, data_inicio)
+     * (ver migration V3) e, só com o id no WHERE, cada UPDATE procura a transação no índice de todas as
+     * partições. Os eventos carregam o data_inicio em epoch millis e a coluna guarda microssegundos, então a
+     * faixa cobre o milissegundo inteiro. Mensagens anteriores ao campo (startedAt = 0) usam a faixa aberta.
+     */
+    record StartRange(LocalDateTime from, LocalDateTime to) {
+
+        public static final StartRange ANY = new StartRange(LocalDateTime.of(1970, 1, 1, 0, 0),
+                LocalDateTime.of(9999, 12, 31, 0, 0));
+
+        public static StartRange of(long startedAtMillis) {
+            if (startedAtMillis <= 0) {
+                return ANY;
+            }
+            var from = LocalDateTime.ofInstant(Instant.ofEpochMilli(startedAtMillis), ZoneId.systemDefault());
+            return new StartRange(from, from.plus(1, ChronoUnit.MILLIS));
+        }
+
+        // Menor faixa que cobre as duas: um lote com transações de dias diferentes poda só até onde dá.
+        public StartRange span(StartRange other) {
+            return new StartRange(from.isBefore(other.from) ? from : other.from,
+                    to.isAfter(other.to) ? to : other.to);
+        }
+    }
+
+    /*
+     * Versão em lote do claim: um único UPDATE para todos os ids, que devolve os que venceram a transição.
+     * started cobre o data_inicio de todas as transações do lote.
+     */
+    List<UUID> claimAll(Collection<UUID> ids, StartRange started, Collection<String> claimable, LocalDateTime now,
+            LocalDateTime leaseUntil, UUID owner);
+
+    /*
+     * Resultado de uma tentativa, gravado a partir de PROCESSING. finishedAt só para status finais.
+     */
+    record Transition(UUID id, StartRange started, String status, Integer rejectedPaymentCount, String reason,
+            LocalDateTime finishedAt) {
+    }
+
+    /*
+     * Aplica as transições via JDBC batch, cada linha condicionada a PROCESSING com o token owner do claim.
+     * Retorna, na mesma ordem, se cada uma venceu.
+     */
+    boolean[] transitionAll(List<Transition> transitions, UUID owner);
+}
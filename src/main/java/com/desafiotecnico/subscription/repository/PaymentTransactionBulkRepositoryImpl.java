@@ -0,0 +1,93 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.PaymentTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class PaymentTransactionBulkRepositoryImpl implements PaymentTransactionBulkRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO payment_transactions " +
+            "(id, subscription_id, status, data_inicio, price_in_cents, renewal_job_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String CLAIM_ALL_SQL = "UPDATE payment_transactions SET status = 'PROCESSING', " +
+            "processing_until = ?, processing_owner = ? WHERE id = ANY (?) " +
+            "AND data_inicio >= ? AND data_inicio < ? AND (status = ANY (?) " +
+            "OR (status = 'PROCESSING' AND (processing_until IS NULL OR processing_until < ?))) RETURNING id";
+
+    private static final String TRANSITION_SQL = "UPDATE payment_transactions SET status = ?, " +
+            "rejected_payment_count = ?, cancellation_reason = ?, data_finalizacao = ?, processing_until = NULL, " +
+            "processing_owner = NULL WHERE id = ? AND data_inicio >= ? AND data_inicio < ? " +
+            "AND status = 'PROCESSING' AND processing_owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<PaymentTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+
+        // Com reWriteBatchedInserts=true o driver reescreve o lote em INSERTs multi-linha.
+        jdbcTemplate.batchUpdate(INSERT_SQL, transactions, transactions.size(), (ps, transaction) -> {
+            ps.setObject(1, transaction.getId());
+            ps.setObject(2, transaction.getSubscription().getId());
+            ps.setString(3, transaction.getStatus());
+            ps.setObject(4, transaction.getDataInicio());
+            ps.setObject(5, transaction.getPriceInCents());
+            ps.setObject(6, transaction.getRenewalJobId());
+        });
+    }
+
+    @Override
+    public List<UUID> claimAll(Collection<UUID> ids, StartRange started, Collection<String> claimable,
+            LocalDateTime now, LocalDateTime leaseUntil, UUID owner) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(CLAIM_ALL_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(leaseUntil));
+            ps.setObject(2, owner);
+            ps.setArray(3, connection.createArrayOf("uuid", ids.toArray()));
+            ps.setTimestamp(4, Timestamp.valueOf(started.from()));
+            ps.setTimestamp(5, Timestamp.valueOf(started.to()));
+            ps.setArray(6, connection.createArrayOf("varchar", claimable.toArray()));
+            ps.setTimestamp(7, Timestamp.valueOf(now));
+            return ps;
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class));
+    }
+
+    @Override
+    public boolean[] transitionAll(List<Transition> transitions, UUID owner) {
+        var won = new boolean[transitions.size()];
+        if (transitions.isEmpty()) {
+            return won;
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(TRANSITION_SQL, transitions, transitions.size(),
+                (ps, transition) -> {
+                    ps.setString(1, transition.status());
+                    ps.setObject(2, transition.rejectedPaymentCount(), Types.INTEGER);
+                    ps.setString(3, transition.reason());
+                    ps.setObject(4, transition.finishedAt() == null ? null : Timestamp.valueOf(transition.finishedAt()),
+                            Types.TIMESTAMP);
+                    ps.setObject(5, transition.id());
+                    ps.setTimestamp(6, Timestamp.valueOf(transition.started().from()));
+                    ps.setTimestamp(7, Timestamp.valueOf(transition.started().to()));
+                    ps.setObject(8, owner);
+                });
+        for (int i = 0; i < won.length; i++) {
+            won[i] = counts[0][i] > 0;
+        }
+        return won;
+    }
+}
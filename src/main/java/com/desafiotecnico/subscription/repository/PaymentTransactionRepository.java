@@ -2,12 +2,82 @@ package com.desafiotecnico.subscription.repository;
 
 import com.desafiotecnico.subscription.domain.PaymentTransaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, UUID> {
+public interface PaymentTransactionRepository extends JpaRepository<PaymentTransaction, UUID>,
+        PaymentTransactionBulkRepository {
     Optional<PaymentTransaction> findBySubscriptionIdAndStatus(UUID subscriptionId, String status);
+
+    /*
+     * Quantidade de transações de um job de renovação por status: [status, total].
+     */
+    @Query("SELECT t.status, count(t) FROM PaymentTransaction t WHERE t.renewalJobId = :jobId GROUP BY t.status")
+    List<Object[]> countByStatusForJob(@Param("jobId") UUID jobId);
+
+    /*
+     * Transições de estado por UPDATE condicional (compare-and-set), ver PaymentTransactionStatus: cada passo é
+     * um único comando, sem carregar a entidade, e retorna 1 só para quem venceu a transição. Quem perde
+     * (redelivery concorrente, transação já finalizada ou de outro consumidor) recebe 0.
+     * O claim grava o token do dono (owner) e as gravações de resultado só valem com o mesmo token: um
+     * consumidor que perdeu o lease para outro não sobrescreve o resultado do novo dono.
+     * startedFrom/startedTo limitam o data_inicio (ver PaymentTransactionBulkRepository.StartRange) para o UPDATE
+     * tocar só a partição da transação.
+     */
+    @Modifying
+    @Query("UPDATE PaymentTransaction t SET t.status = 'PROCESSING', t.processingUntil = :leaseUntil, " +
+            "t.processingOwner = :owner WHERE t.id = :id " +
+            "AND t.dataInicio >= :startedFrom AND t.dataInicio < :startedTo AND (t.status IN :claimable " +
+            "OR (t.status = 'PROCESSING' AND (t.processingUntil IS NULL OR t.processingUntil < :now)))")
+    int claim(@Param("id") UUID id, @Param("startedFrom") LocalDateTime startedFrom,
+            @Param("startedTo") LocalDateTime startedTo, @Param("claimable") Collection<String> claimable,
+            @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil,
+            @Param("owner") UUID owner);
+
+    @Modifying
+    @Query("UPDATE PaymentTransaction t SET t.status = :status, t.rejectedPaymentCount = :rejectedPaymentCount, " +
+            "t.processingUntil = NULL, t.processingOwner = NULL " +
+            "WHERE t.id = :id AND t.dataInicio >= :startedFrom AND t.dataInicio < :startedTo " +
+            "AND t.status = 'PROCESSING' AND t.processingOwner = :owner")
+    int markForRetry(@Param("id") UUID id, @Param("startedFrom") LocalDateTime startedFrom,
+            @Param("startedTo") LocalDateTime startedTo, @Param("status") String status,
+            @Param("rejectedPaymentCount") Integer rejectedPaymentCount, @Param("owner") UUID owner);
+
+    @Modifying
+    @Query("UPDATE PaymentTransaction t SET t.status = :status, t.cancellationReason = :reason, " +
+            "t.dataFinalizacao = :now, t.processingUntil = NULL, t.processingOwner = NULL " +
+            "WHERE t.id = :id AND t.dataInicio >= :startedFrom AND t.dataInicio < :startedTo " +
+            "AND t.status = 'PROCESSING' AND t.processingOwner = :owner")
+    int finish(@Param("id") UUID id, @Param("startedFrom") LocalDateTime startedFrom,
+            @Param("startedTo") LocalDateTime startedTo, @Param("status") String status, @Param("reason") String reason,
+            @Param("now") LocalDateTime now, @Param("owner") UUID owner);
+
+    /*
+     * Quais das transações já estão num status final. Usado por quem perdeu o claim para distinguir a
+     * transação finalizada (duplicata descartável) da que está em PROCESSING com outro consumidor.
+     * Sem faixa de data_inicio: é o caminho raro das duplicatas, e a busca pelo índice da chave em cada partição
+     * custa pouco (as antigas são removidas pelo PaymentTransactionArchiver).
+     */
+    @Query("SELECT t.id FROM PaymentTransaction t WHERE t.id IN :ids AND t.status IN :finalStatuses")
+    List<UUID> findFinishedIds(@Param("ids") Collection<UUID> ids,
+            @Param("finalStatuses") Collection<String> finalStatuses);
+
+    // Cancelamento pela DLQ: vale para qualquer transação ainda aberta, reivindicada ou não.
+    @Modifying
+    @Query("UPDATE PaymentTransaction t SET t.status = :status, t.cancellationReason = :reason, " +
+            "t.dataFinalizacao = :now, t.processingUntil = NULL, t.processingOwner = NULL " +
+            "WHERE t.id = :id AND t.dataInicio >= :startedFrom AND t.dataInicio < :startedTo " +
+            "AND t.status NOT IN :finalStatuses")
+    int cancelOpen(@Param("id") UUID id, @Param("startedFrom") LocalDateTime startedFrom,
+            @Param("startedTo") LocalDateTime startedTo, @Param("status") String status, @Param("reason") String reason,
+            @Param("finalStatuses") Collection<String> finalStatuses, @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,59 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.RenewalJob;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+ * As escritas só valem para jobs RUNNING: um job cancelado em qualquer instância faz o próximo bloco
+ * de quem o executa afetar zero linhas e ser desfeito.
+ */
+@Repository
+public interface RenewalJobRepository extends JpaRepository<RenewalJob, UUID> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenewalJob j SET j.found = j.found + :count, j.heartbeatAt = :now " +
+            "WHERE j.id = :id AND j.owner = :owner AND j.status = com.desafiotecnico.subscription.domain.RenewalJobStatus.RUNNING")
+    int recordChunk(@Param("id") UUID id, @Param("owner") String owner, @Param("count") int count,
+            @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenewalJob j SET j.heartbeatAt = :now " +
+            "WHERE j.owner = :owner AND j.status = com.desafiotecnico.subscription.domain.RenewalJobStatus.RUNNING")
+    int heartbeat(@Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenewalJob j SET j.status = :status, j.errorMessage = :errorMessage, j.finishedAt = :now " +
+            "WHERE j.id = :id AND j.status = com.desafiotecnico.subscription.domain.RenewalJobStatus.RUNNING")
+    int finish(@Param("id") UUID id, @Param("status") RenewalJobStatus status,
+            @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    /*
+     * Assume um job cuja instância parou de mandar heartbeat.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RenewalJob j SET j.owner = :owner, j.heartbeatAt = :now " +
+            "WHERE j.id = :id AND j.status = com.desafiotecnico.subscription.domain.RenewalJobStatus.RUNNING " +
+            "AND j.heartbeatAt < :staleBefore")
+    int claimStale(@Param("id") UUID id, @Param("owner") String owner, @Param("now") LocalDateTime now,
+            @Param("staleBefore") LocalDateTime staleBefore);
+
+    Optional<RenewalJob> findFirstByRunDateAndStatus(LocalDate runDate, RenewalJobStatus status);
+
+    List<RenewalJob> findByStatusAndHeartbeatAtBefore(RenewalJobStatus status, LocalDateTime staleBefore);
+}
@@ -0,0 +1,106 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.RenewalCursor;
+import com.desafiotecnico.subscription.domain.RenewalShardLease;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+ * Leases das fatias da renovação (tabela renewal_shard_leases, migration V4).
+ * Toda escrita de quem processa filtra por owner: se o lease venceu e outra instância assumiu a fatia,
+ * a escrita não afeta linha nenhuma e o bloco correspondente é desfeito.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RenewalShardLeaseRepository {
+
+    private static final String CREATE_SHARDS_SQL = "INSERT INTO renewal_shard_leases (run_date, shard, shard_count, status) " +
+            "SELECT ?, s, ?, 'PENDING' FROM generate_series(0, ? - 1) s " +
+            "ON CONFLICT (run_date, shard) DO NOTHING";
+
+    // Nova rodada só quando a anterior terminou por completo; senão quem chega entra na rodada em andamento.
+    private static final String RESET_FINISHED_ROUND_SQL = "UPDATE renewal_shard_leases " +
+            "SET status = 'PENDING', owner = NULL, lease_until = NULL, last_expiration_date = NULL, last_id = NULL, " +
+            "processed = 0, updated_at = now() " +
+            "WHERE run_date = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM renewal_shard_leases l WHERE l.run_date = ? AND l.status <> 'DONE')";
+
+    private static final String CLAIM_SQL = "UPDATE renewal_shard_leases l " +
+            "SET status = 'RUNNING', owner = ?, lease_until = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE (l.run_date, l.shard) = (" +
+            "SELECT run_date, shard FROM renewal_shard_leases " +
+            "WHERE run_date = ? AND status <> 'DONE' AND (owner IS NULL OR lease_until < now()) " +
+            "ORDER BY shard LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING l.*";
+
+    private static final String ADVANCE_SQL = "UPDATE renewal_shard_leases " +
+            "SET last_expiration_date = ?, last_id = ?, processed = processed + ?, " +
+            "lease_until = now() + make_interval(secs => ?), updated_at = now() " +
+            "WHERE run_date = ? AND shard = ? AND owner = ? AND status = 'RUNNING'";
+
+    private static final RowMapper<RenewalShardLease> ROW_MAPPER = (rs, rowNum) -> new RenewalShardLease(
+            rs.getObject("run_date", LocalDate.class),
+            rs.getInt("shard"),
+            rs.getInt("shard_count"),
+            rs.getString("status"),
+            rs.getString("owner"),
+            rs.getTimestamp("lease_until") == null ? null : rs.getTimestamp("lease_until").toLocalDateTime(),
+            rs.getObject("last_expiration_date", LocalDate.class),
+            rs.getObject("last_id", UUID.class),
+            rs.getInt("processed"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+     * Cria as fatias do dia. Com restartFinished, uma rodada já concluída recomeça do início (trigger manual e
+     * agendador); sem ele, o dia concluído fica concluído (retomada de um job).
+     */
+    public void startRound(LocalDate runDate, int shardCount, boolean restartFinished) {
+        jdbcTemplate.update(CREATE_SHARDS_SQL, runDate, shardCount, shardCount);
+        if (restartFinished) {
+            jdbcTemplate.update(RESET_FINISHED_ROUND_SQL, runDate, runDate);
+        }
+    }
+
+    public Optional<RenewalShardLease> claimNext(LocalDate runDate, String owner, Duration lease) {
+        return jdbcTemplate.query(CLAIM_SQL, ROW_MAPPER, owner, lease.toSeconds(), runDate).stream().findFirst();
+    }
+
+    /*
+     * Grava o keyset commitado e renova o lease. Deve rodar na mesma transação do bloco.
+     */
+    public boolean advance(RenewalShardLease lease, String owner, RenewalCursor cursor, int processed,
+            Duration leaseDuration) {
+        return jdbcTemplate.update(ADVANCE_SQL, cursor.expirationDate(), cursor.id(), processed,
+                leaseDuration.toSeconds(), lease.runDate(), lease.shard(), owner) == 1;
+    }
+
+    public void complete(RenewalShardLease lease, String owner) {
+        jdbcTemplate.update("UPDATE renewal_shard_leases SET status = 'DONE', owner = NULL, lease_until = NULL, " +
+                "updated_at = now() WHERE run_date = ? AND shard = ? AND owner = ?",
+                lease.runDate(), lease.shard(), owner);
+    }
+
+    /*
+     * Devolve a fatia sem concluí-la (limite de assinaturas atingido); quem reivindicar continua do keyset salvo.
+     */
+    public void release(RenewalShardLease lease, String owner) {
+        jdbcTemplate.update("UPDATE renewal_shard_leases SET status = 'PENDING', owner = NULL, lease_until = NULL, " +
+                "updated_at = now() WHERE run_date = ? AND shard = ? AND owner = ?",
+                lease.runDate(), lease.shard(), owner);
+    }
+
+    public List<RenewalShardLease> findByRunDate(LocalDate runDate) {
+        return jdbcTemplate.query("SELECT * FROM renewal_shard_leases WHERE run_date = ? ORDER BY shard",
+                ROW_MAPPER, runDate);
+    }
+}
@@ -0,0 +1,31 @@
+package com.desafiotecnico.subscription.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Renovação e cancelamento de assinaturas em um único UPDATE, sem carregar as entidades.
+ * Os dois devolvem o que foi alterado (com o usuário, para invalidar o cache da assinatura vigente).
+ */
+public interface SubscriptionBulkRepository {
+
+    record Renewed(UUID id, UUID userId, LocalDate expirationDate) {
+    }
+
+    record Cancelled(UUID id, UUID userId) {
+    }
+
+    /*
+     * Estende a validade em um mês a partir do maior entre a validade atual e hoje, reativa a assinatura e
+     * registra a data da renovação.
+     */
+    List<Renewed> renewAll(Collection<UUID> subscriptionIds);
+
+    /*
+     * Cancela cada assinatura com o seu motivo. Ids ausentes do retorno não existem.
+     */
+    List<Cancelled> cancelAll(Map<UUID, String> reasonsBySubscriptionId);
+}
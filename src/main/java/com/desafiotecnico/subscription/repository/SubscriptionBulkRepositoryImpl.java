@@ -0,0 +1,55 @@
+package com.desafiotecnico.subscription.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+public class SubscriptionBulkRepositoryImpl implements SubscriptionBulkRepository {
+
+    private static final String RENEW_SQL = "UPDATE subscriptions " +
+            "SET expiration_date = (GREATEST(expiration_date, current_date) + interval '1 month')::date, " +
+            "last_renewal_date = current_date, status = 'ATIVA' " +
+            "WHERE id = ANY (?) RETURNING id, user_id, expiration_date";
+
+    private static final String CANCEL_SQL = "UPDATE subscriptions s SET status = 'CANCELADA', " +
+            "cancel_reason = c.reason FROM unnest(?::uuid[], ?::varchar[]) AS c (id, reason) " +
+            "WHERE s.id = c.id RETURNING s.id, s.user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Renewed> renewAll(Collection<UUID> subscriptionIds) {
+        if (subscriptionIds.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(RENEW_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", subscriptionIds.toArray()));
+            return ps;
+        }, (rs, rowNum) -> new Renewed(rs.getObject("id", UUID.class), rs.getObject("user_id", UUID.class),
+                rs.getObject("expiration_date", LocalDate.class)));
+    }
+
+    @Override
+    public List<Cancelled> cancelAll(Map<UUID, String> reasonsBySubscriptionId) {
+        if (reasonsBySubscriptionId.isEmpty()) {
+            return List.of();
+        }
+
+        var ids = reasonsBySubscriptionId.keySet().toArray();
+        var reasons = reasonsBySubscriptionId.values().toArray();
+        return jdbcTemplate.query(connection -> {
+            var ps = connection.prepareStatement(CANCEL_SQL);
+            ps.setArray(1, connection.createArrayOf("uuid", ids));
+            ps.setArray(2, connection.createArrayOf("varchar", reasons));
+            return ps;
+        }, (rs, rowNum) -> new Cancelled(rs.getObject("id", UUID.class), rs.getObject("user_id", UUID.class)));
+    }
+}
@@ -1,7 +1,6 @@
 package com.desafiotecnico.subscription.repository;
 
 import com.desafiotecnico.subscription.domain.Subscription;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,18 +12,34 @@ import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface SubscriptionRepository extends JpaRepository<Subscription, UUID> {
+public interface SubscriptionRepository extends JpaRepository<Subscription, UUID>, SubscriptionBulkRepository {
+
+    /*
+     * Consulta de vencimento, compartilhada com o RenewalDueQueryPlanTest, que faz o EXPLAIN deste mesmo texto.
+     */
+    String DUE_QUERY = "SELECT s.* FROM subscriptions s " +
+            "WHERE s.expiration_date = :date " +
+            "AND s.status = 'ATIVA' " +
+            "AND (s.expiration_date, s.id) > (:lastExpirationDate, :lastId) " +
+            "AND s.id <= :upperId " +
+            "AND NOT EXISTS (SELECT 1 FROM payment_transactions rt WHERE rt.subscription_id = s.id AND rt.data_finalizacao IS NULL) " +
+            "ORDER BY s.expiration_date, s.id " +
+            "LIMIT :limit";
 
     Optional<Subscription> findFirstByUserIdAndExpirationDateAfter(UUID userId, LocalDate date);
 
     /*
      * Busca as assinaturas que não possuiem transações de renovação em aberto.
      * Só dispara evento de renovação para assinaturas ativas.
+     * Paginada por keyset (expiration_date, id): cada chamada continua a partir do último registro
+     * processado, sem OFFSET, então o custo por página não cresce com o tamanho do conjunto.
+     * upperId limita a faixa de ids da fatia (RenewalShard); sem fatias, é o maior UUID.
      */
-    @Query(value = "SELECT s.* FROM subscriptions s " +
-            "WHERE s.expiration_date = :date " +
-            "AND s.status = 'ATIVA' " +
-            "AND NOT EXISTS (SELECT 1 FROM payment_transactions rt WHERE rt.subscription_id = s.id AND rt.data_finalizacao IS NULL)", nativeQuery = true)
-    List<Subscription> findSubscriptionToProccessPayment(@Param("date") LocalDate date, Pageable pageable);
+    @Query(value = DUE_QUERY, nativeQuery = true)
+    List<Subscription> findSubscriptionToProccessPayment(@Param("date") LocalDate date,
+            @Param("lastExpirationDate") LocalDate lastExpirationDate,
+            @Param("lastId") UUID lastId,
+            @Param("upperId") UUID upperId,
+            @Param("limit") int limit);
 
 }
@@ -2,6 +2,8 @@ package com.desafiotecnico.subscription.repository;
 
 import com.desafiotecnico.subscription.domain.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,4 +14,11 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
 
     boolean existsByEmail(String email);
+
+    /*
+     * Trava a linha do usuário até o fim da transação: serializa as criações de assinatura do mesmo usuário,
+     * para que a verificação de assinatura vigente e o INSERT não se intercalem entre instâncias.
+     */
+    @Query(value = "SELECT id FROM users WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockById(@Param("id") UUID id);
 }
@@ -0,0 +1,55 @@
+package com.desafiotecnico.subscription.retry;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+/*
+ * Backoff exponencial com "full jitter": o atraso é sorteado entre zero e min(maxDelay, baseDelay * 2^(attempt-1)).
+ * O sorteio espalha as repetições no tempo, em vez de todas voltarem juntas depois de uma queda do gateway.
+ * Cada causa tem seu limite de tentativas e nenhuma repetição é agendada para depois do prazo total.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+
+    public record Limits(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+    }
+
+    private final Map<RetryCause, Limits> limits;
+    private final long totalDeadlineMs;
+    private final Supplier<RandomGenerator> random;
+    private final LongSupplier clock;
+
+    public ExponentialBackoffRetryPolicy(Map<RetryCause, Limits> limits, long totalDeadlineMs) {
+        this(limits, totalDeadlineMs, ThreadLocalRandom::current, System::currentTimeMillis);
+    }
+
+    ExponentialBackoffRetryPolicy(Map<RetryCause, Limits> limits, long totalDeadlineMs, Supplier<RandomGenerator> random,
+            LongSupplier clock) {
+        this.limits = Map.copyOf(limits);
+        this.totalDeadlineMs = totalDeadlineMs;
+        this.random = random;
+        this.clock = clock;
+    }
+
+    @Override
+    public RetryDecision decide(RetryCause cause, int attempt, long firstAttemptAtMs) {
+        var causeLimits = limits.get(cause);
+        if (causeLimits == null || attempt > causeLimits.maxAttempts()) {
+            return RetryDecision.giveUp();
+        }
+
+        long ceiling = causeLimits.maxDelayMs();
+        // Evita overflow do deslocamento em tentativas altas.
+        if (attempt - 1 < Long.numberOfLeadingZeros(causeLimits.baseDelayMs()) - 1) {
+            ceiling = Math.min(ceiling, causeLimits.baseDelayMs() << (attempt - 1));
+        }
+        long delayMs = ceiling <= 0 ? 0 : random.get().nextLong(ceiling + 1);
+
+        if (firstAttemptAtMs > 0 && clock.getAsLong() + delayMs > firstAttemptAtMs + totalDeadlineMs) {
+            return RetryDecision.giveUp();
+        }
+        return RetryDecision.retryAfter(delayMs);
+    }
+}
@@ -0,0 +1,8 @@
+package com.desafiotecnico.subscription.retry;
+
+public enum RetryCause {
+    // Gateway recusou o pagamento (4xx ou callback sem sucesso)
+    DECLINED,
+    // Gateway com erro 5xx, timeout ou falha de conexão
+    GATEWAY_UNAVAILABLE
+}
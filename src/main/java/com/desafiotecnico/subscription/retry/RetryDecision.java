@@ -0,0 +1,12 @@
+package com.desafiotecnico.subscription.retry;
+
+public record RetryDecision(boolean retry, long delayMs) {
+
+    public static RetryDecision retryAfter(long delayMs) {
+        return new RetryDecision(true, delayMs);
+    }
+
+    public static RetryDecision giveUp() {
+        return new RetryDecision(false, 0);
+    }
+}
@@ -0,0 +1,10 @@
+package com.desafiotecnico.subscription.retry;
+
+public interface RetryPolicy {
+
+    /*
+     * Decide se a tentativa de número attempt (1 = primeira repetição) deve acontecer e com qual atraso.
+     * firstAttemptAtMs é o instante (epoch millis) da primeira tentativa, usado para o prazo total.
+     */
+    RetryDecision decide(RetryCause cause, int attempt, long firstAttemptAtMs);
+}
@@ -0,0 +1,121 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.OutboxEvent;
+import com.desafiotecnico.subscription.producers.RabbitOutboxPublisher;
+import com.desafiotecnico.subscription.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+ * Drena a tabela outbox em lotes e publica no RabbitMQ. Cada lote é reivindicado numa transação curta
+ * (SKIP LOCKED + lease em locked_until) e publicado fora dela, então a espera pelos publisher confirms não
+ * segura travas nem conexão do pool. As confirmadas são removidas e as demais devolvidas ao outbox; várias
+ * instâncias podem rodar o relay ao mesmo tempo.
+ */
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitOutboxPublisher rabbitOutboxPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size}")
+    private int batchSize;
+
+    @Value("${outbox.relay.lease-ms}")
+    private long leaseMs;
+
+    private volatile double lagSeconds;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, RabbitOutboxPublisher rabbitOutboxPublisher,
+            TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitOutboxPublisher = rabbitOutboxPublisher;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("outbox.relay.lag", this, relay -> relay.lagSeconds)
+                .description("Idade do evento mais antigo ainda não publicado")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms}")
+    public void relay() {
+        try {
+            int published;
+            do {
+                published = relayBatch();
+            } while (published == batchSize);
+        } catch (Exception e) {
+            log.error("Erro ao drenar o outbox", e);
+        } finally {
+            updateLag();
+        }
+    }
+
+    private int relayBatch() {
+        var batch = transactionTemplate.execute(status -> claimBatch());
+        if (batch == null || batch.isEmpty()) {
+            return 0;
+        }
+
+        var confirmed = rabbitOutboxPublisher.publish(batch);
+
+        Set<UUID> acked = new HashSet<>(confirmed);
+        var unconfirmed = batch.stream()
+                .map(OutboxEvent::getId)
+                .filter(id -> !acked.contains(id))
+                .toList();
+        transactionTemplate.execute(status -> {
+            if (!confirmed.isEmpty()) {
+                outboxEventRepository.deleteAllByIdInBatch(confirmed);
+            }
+            if (!unconfirmed.isEmpty()) {
+                outboxEventRepository.releaseLease(unconfirmed);
+            }
+            return null;
+        });
+
+        if (!unconfirmed.isEmpty()) {
+            log.warn("{} de {} mensagens do outbox não confirmadas; ficam para a próxima rodada",
+                    unconfirmed.size(), batch.size());
+        }
+        return confirmed.size();
+    }
+
+    /*
+     * Trava o lote só pelo tempo de gravar o lease. O lease precisa passar do confirm-timeout-ms: enquanto
+     * ele vale, nenhuma outra instância publica as mesmas linhas.
+     */
+    private List<OutboxEvent> claimBatch() {
+        var now = LocalDateTime.now();
+        var batch = outboxEventRepository.lockNextBatch(batchSize, now);
+        if (!batch.isEmpty()) {
+            outboxEventRepository.lease(batch.stream().map(OutboxEvent::getId).toList(),
+                    now.plus(Duration.ofMillis(leaseMs)));
+        }
+        return batch;
+    }
+
+    private void updateLag() {
+        try {
+            LocalDateTime oldest = outboxEventRepository.findOldestCreatedAt();
+            lagSeconds = oldest == null ? 0 : Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0;
+        } catch (Exception e) {
+            log.warn("Não foi possível calcular o atraso do outbox", e);
+        }
+    }
+}
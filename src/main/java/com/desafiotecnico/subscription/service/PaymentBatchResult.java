@@ -0,0 +1,21 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+
+import java.util.List;
+
+/*
+ * Desfecho de um lote do PaymentTransactionService.startPaymentTransactions para o consumidor decidir o ack:
+ * rejected vai para a DLQ (erro interno, ou cobrança feita cujo resultado não pôde ser gravado) e requeued volta
+ * para a fila (nada foi cobrado e a reivindicação no Redis já foi liberada). O resto do lote é confirmado.
+ */
+public record PaymentBatchResult(List<PaymentTransactionEvent> rejected, List<PaymentTransactionEvent> requeued) {
+
+    public static PaymentBatchResult rejected(List<PaymentTransactionEvent> rejected) {
+        return new PaymentBatchResult(rejected, List.of());
+    }
+
+    public static PaymentBatchResult requeued(List<PaymentTransactionEvent> requeued) {
+        return new PaymentBatchResult(List.of(), requeued);
+    }
+}
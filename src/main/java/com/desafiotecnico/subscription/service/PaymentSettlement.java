@@ -0,0 +1,44 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+
+/*
+ * Resultado de uma tentativa de cobrança, ainda não gravado: o status de destino e, conforme o caso, o motivo,
+ * o atraso da próxima tentativa ou o evento de cancelamento da assinatura. Gravado um a um no fluxo unitário e
+ * de uma vez no lote (PaymentTransactionStateService.settleAll).
+ * releaseClaim libera a reivindicação no Redis (retentativa sem mudar os contadores) e failure guarda o erro
+ * interno que manda a mensagem para a DLQ.
+ */
+public record PaymentSettlement(PaymentTransactionEvent event, PaymentTransactionStatus status, String reason,
+        long retryDelayMs, SubscriptionCancelEvent cancelEvent, boolean releaseClaim, Exception failure) {
+
+    public static PaymentSettlement approved(PaymentTransactionEvent event) {
+        return new PaymentSettlement(event, PaymentTransactionStatus.APPROVED, null, 0, null, false, null);
+    }
+
+    public static PaymentSettlement retry(PaymentTransactionEvent event, PaymentTransactionStatus status,
+            long delayMs, boolean releaseClaim) {
+        return new PaymentSettlement(event, status, null, delayMs, null, releaseClaim, null);
+    }
+
+    public static PaymentSettlement declined(PaymentTransactionEvent event, String reason,
+            SubscriptionCancelEvent cancelEvent) {
+        return new PaymentSettlement(event, PaymentTransactionStatus.DECLINED, reason, 0, cancelEvent, false, null);
+    }
+
+    public static PaymentSettlement aborted(PaymentTransactionEvent event, String reason) {
+        return new PaymentSettlement(event, PaymentTransactionStatus.ABORTED, reason, 0, null, false, null);
+    }
+
+    public static PaymentSettlement failed(PaymentTransactionEvent event, Exception failure) {
+        return new PaymentSettlement(event, PaymentTransactionStatus.ABORTED, null, 0, null, false, failure);
+    }
+
+    public boolean isFinal() {
+        return status == PaymentTransactionStatus.APPROVED
+                || status == PaymentTransactionStatus.DECLINED
+                || status == PaymentTransactionStatus.ABORTED;
+    }
+}
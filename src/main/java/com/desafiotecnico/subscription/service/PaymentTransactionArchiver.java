@@ -0,0 +1,70 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.repository.PaymentTransactionArchiveRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/*
+ * Mantém payment_transactions pequena: garante as partições dos próximos meses e move as transações
+ * finalizadas mais antigas que o horizonte para payment_transactions_archive, em lotes de transação curta.
+ * Partições antigas que ficam vazias são removidas, então as consultas do fluxo de renovação (findById,
+ * NOT EXISTS da consulta de vencimento) só percorrem os meses recentes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentTransactionArchiver {
+
+    private final PaymentTransactionArchiveRepository paymentTransactionArchiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${payment-transactions.archive.horizon-months}")
+    private int horizonMonths;
+
+    @Value("${payment-transactions.archive.batch-size}")
+    private int batchSize;
+
+    @Value("${payment-transactions.partitions.months-ahead}")
+    private int monthsAhead;
+
+    @Scheduled(cron = "${payment-transactions.maintenance.cron}")
+    public void maintain() {
+        try {
+            ensurePartitions(LocalDate.now());
+            archive(LocalDate.now().withDayOfMonth(1).minusMonths(horizonMonths));
+        } catch (Exception e) {
+            log.error("Erro na manutenção de payment_transactions", e);
+        }
+    }
+
+    void ensurePartitions(LocalDate today) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            paymentTransactionArchiveRepository.ensurePartition(today.withDayOfMonth(1).plusMonths(i));
+        }
+    }
+
+    int archive(LocalDate horizon) {
+        int total = 0;
+        Integer moved;
+        do {
+            moved = transactionTemplate.execute(
+                    status -> paymentTransactionArchiveRepository.archiveBatch(horizon.atStartOfDay(), batchSize));
+            total += moved == null ? 0 : moved;
+        } while (moved != null && moved == batchSize);
+
+        for (String partition : paymentTransactionArchiveRepository.findPartitionsBefore(horizon)) {
+            if (paymentTransactionArchiveRepository.dropIfEmpty(partition)) {
+                log.info("Partição {} vazia removida", partition);
+            }
+        }
+
+        log.info("Arquivamento concluído. Transações movidas: {}, Horizonte: {}", total, horizon);
+        return total;
+    }
+}
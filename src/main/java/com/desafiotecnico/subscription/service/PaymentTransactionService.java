@@ -1,170 +1,466 @@
 package com.desafiotecnico.subscription.service;
 
 import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
-import com.desafiotecnico.subscription.domain.PaymentTransaction;
 import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
 import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
 import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
 import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayResponse;
 
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.StartRange;
 import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
 
-import jakarta.persistence.EntityNotFoundException;
-
-import com.desafiotecnico.subscription.config.RabbitMQConfig;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.desafiotecnico.subscription.dto.request.PaymentCallbackRequest;
+import com.desafiotecnico.subscription.error.UnavailableGatewayException;
+import com.desafiotecnico.subscription.gateway.PaymentGatewayClient;
+import com.desafiotecnico.subscription.idempotency.PaymentIdempotencyStore;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
+import com.desafiotecnico.subscription.retry.RetryCause;
+import com.desafiotecnico.subscription.retry.RetryPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentTransactionService {
 
+    public static final String MODE_CALLBACK = "callback";
+
     private final PaymentTransactionRepository paymentTransactionRepository;
-    private final RestTemplate restTemplate;
-    private final RabbitTemplate rabbitTemplate;
-    private final SubscriptionService subscriptionService;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final PaymentTransactionStateService paymentTransactionStateService;
+    private final SubscriptionRenewalProducer subscriptionRenewalProducer;
+    private final RetryPolicy paymentRetryPolicy;
+    private final PaymentIdempotencyStore paymentIdempotencyStore;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${integration.payments.limiter.rejected-retry-delay-ms}")
+    private long unavailableGatewayRetryDelayMs;
 
-    @Value("${integration.payments.url}")
-    private String paymentUrl;
+    @Value("${integration.payments.mode}")
+    private String gatewayMode;
 
-    @Value("${declined.payment.retry.interval.in.seconds}")
-    private Integer declinedPaymentRetryIntervalInSeconds;
+    @Value("${integration.payments.callback-url}")
+    private String callbackUrl;
+
+    @Value("${idempotency.in-flight-retry-delay-ms}")
+    private long inFlightRetryDelayMs;
 
     // Usado pelo PaymentTransactionCancelConsumer
     @Transactional
-    public void cancelTransaction(UUID transactionId, String reason, PaymentTransactionStatus status) {
+    public void cancelTransaction(PaymentTransactionEvent event, String reason, PaymentTransactionStatus status) {
+        var transactionId = event.getTransactionId();
         log.info("Cancelando transação {} com motivo: {}", transactionId, reason);
 
-        PaymentTransaction transaction = paymentTransactionRepository.findById(transactionId)
-                .orElseThrow(() -> new IllegalArgumentException("Transação não encontrada com ID: " + transactionId));
-
-        transaction.setStatus(status.name());
-        transaction.setCancellationReason(reason);
-        transaction.setDataFinalizacao(LocalDateTime.now());
-
-        paymentTransactionRepository.save(transaction);
+        var started = StartRange.of(event.getStartedAt());
+        if (paymentTransactionRepository.cancelOpen(transactionId, started.from(), started.to(), status.name(),
+                reason, PaymentTransactionStatus.FINAL, LocalDateTime.now()) == 0) {
+            log.warn("Transação {} inexistente ou já finalizada. Nada a cancelar.", transactionId);
+            return;
+        }
         log.info("Transação {} cancelada com sucesso", transactionId);
     }
 
-    @Transactional
-    // @Retryable(retryFor = EntityNotFoundException.class, maxAttempts = 3, backoff
-    // = @Backoff(delay = 200, multiplier = 2))
+    /*
+     * Sem @Transactional de propósito: a chamada ao gateway acontece fora de qualquer transação.
+     * O fluxo é reivindicar (PROCESSING), chamar o gateway e registrar o resultado, cada passo de banco
+     * numa transação curta do PaymentTransactionStateService.
+     * Antes de tudo a tentativa é reivindicada no Redis: duplicatas nem chegam ao banco e só uma entrega por
+     * tentativa chama o gateway. Se algo falhar antes da chamada ao gateway (erro de banco, timeout do pool,
+     * gateway indisponível), a reivindicação é liberada para a redelivery não ser descartada como duplicata.
+     * Depois da chamada ela é mantida mesmo que a gravação do resultado falhe, e a mensagem vai para a DLQ em
+     * vez de voltar para a fila e cobrar de novo (como no settleEach do lote).
+     * Cada entrega reivindica a transação no banco com um token próprio (owner), exigido ao gravar o resultado.
+     */
     public void startPaymentTransaction(PaymentTransactionEvent event) {
 
-        log.info("Processando renovação. Subscription: {}, Transaction: {}",
+        log.debug("Processando renovação. Subscription: {}, Transaction: {}",
                 event.getSubscriptionId(), event.getTransactionId());
 
-        var transaction = paymentTransactionRepository.findById(event.getTransactionId());
-
-        if (transaction.isEmpty()) {
-            log.warn("Transação {} não encontrada no banco.", event.getTransactionId());
-            throw new EntityNotFoundException("Transação " + event.getTransactionId() + " não encontrada no banco.");
+        if (!claimed(event, paymentIdempotencyStore.tryClaim(event))) {
+            return;
         }
 
-        if (isFinalStatus(transaction.get().getStatus())) {
-            log.warn("Transação {} já processada com status {}. Ignorando.", transaction.get().getId(),
-                    transaction.get().getStatus());
-            return;
+        // Os contadores do evento mudam no charge(); a chave da tentativa reivindicada é a de antes.
+        var attempt = event.toBuilder().build();
+        var owner = UUID.randomUUID();
+        boolean release = true;
+        try {
+            if (!paymentTransactionStateService.claimForProcessing(event, owner)) {
+                // Só a transação finalizada descarta as duplicatas; em PROCESSING com outro consumidor a
+                // reivindicação é liberada (finally) e a mensagem volta com atraso.
+                if (!paymentTransactionStateService.findFinished(List.of(event.getTransactionId())).isEmpty()) {
+                    paymentIdempotencyStore.markDone(event.getTransactionId());
+                    release = false;
+                } else {
+                    processingElsewhere(event);
+                }
+                return;
+            }
+
+            var settlement = charge(event);
+            if (settlement == null) {
+                release = false;
+                return;
+            }
+
+            // releaseClaim: a chamada nem saiu (gateway indisponível), então a mensagem pode voltar para a fila.
+            release = settlement.releaseClaim();
+            try {
+                settle(settlement, owner);
+            } catch (RuntimeException e) {
+                if (release) {
+                    throw e;
+                }
+                settleFailed(settlement, e);
+                throw new AmqpRejectAndDontRequeueException("Resultado da cobrança não gravado", e);
+            }
+            release = false;
+            attemptSettled(attempt, settlement);
+
+            if (settlement.failure() != null) {
+                throw new AmqpRejectAndDontRequeueException(
+                        "Erro desconhecido: " + settlement.failure().getMessage(), settlement.failure());
+            }
+        } finally {
+            if (release) {
+                paymentIdempotencyStore.release(attempt);
+            }
         }
+    }
 
+    /*
+     * Modo em lote (SubscriptionRenewalBatchConsumer): o mesmo fluxo do startPaymentTransaction para várias
+     * mensagens, mas com uma reivindicação e uma gravação de resultados por lote em vez de idas ao banco por
+     * mensagem. As chamadas ao gateway saem em paralelo, em virtual threads, ainda limitadas pelo bulkhead e
+     * pelo limite adaptativo do PaymentGatewayClient.
+     * Erros não derrubam o lote: antes das cobranças, as reivindicações são liberadas e as mensagens voltam para
+     * a fila; depois delas, nenhuma volta (o gateway já foi chamado), e o que não puder ser gravado nem um a um
+     * vai para a DLQ com os erros internos.
+     */
+    public PaymentBatchResult startPaymentTransactions(List<PaymentTransactionEvent> events) {
+        Set<UUID> seen = new HashSet<>();
+        List<PaymentTransactionEvent> claimed = new ArrayList<>();
+        Map<UUID, PaymentTransactionEvent> attempts = new HashMap<>();
+        var owner = UUID.randomUUID();
+        Set<UUID> processing;
+        int examined = 0;
         try {
-            updateStatus(transaction.get(), PaymentTransactionStatus.PROCESSING);
+            for (var event : events) {
+                var claim = seen.add(event.getTransactionId()) ? paymentIdempotencyStore.tryClaim(event)
+                        : PaymentIdempotencyStore.Claim.IN_FLIGHT;
+                if (claimed(event, claim)) {
+                    claimed.add(event);
+                    attempts.put(event.getTransactionId(), event.toBuilder().build());
+                }
+                examined++;
+            }
+            if (claimed.isEmpty()) {
+                return new PaymentBatchResult(List.of(), List.of());
+            }
 
-            // Aqui teríamos outras informações como produto, cpf, etc.
-            var gatewayRequest = PaymentGatewayRequest.builder()
-                    .amount(event.getPriceInCents())
-                    .customId(event.getTransactionId())
-                    .build();
+            processing = paymentTransactionStateService.claimAllForProcessing(claimed, owner);
+            var finished = paymentTransactionStateService.findFinished(claimed.stream()
+                    .map(PaymentTransactionEvent::getTransactionId)
+                    .filter(transactionId -> !processing.contains(transactionId))
+                    .toList());
+            for (var event : claimed) {
+                var transactionId = event.getTransactionId();
+                if (finished.contains(transactionId)) {
+                    paymentIdempotencyStore.markDone(transactionId);
+                } else if (!processing.contains(transactionId)) {
+                    paymentIdempotencyStore.release(attempts.get(transactionId));
+                    processingElsewhere(event);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Erro reivindicando lote de {} transações. Nada foi cobrado; devolvendo para a fila.",
+                    events.size(), e);
+            claimed.forEach(event -> paymentIdempotencyStore.release(attempts.get(event.getTransactionId())));
+            List<PaymentTransactionEvent> requeued = new ArrayList<>(claimed);
+            requeued.addAll(events.subList(examined, events.size()));
+            return PaymentBatchResult.requeued(requeued);
+        }
 
-            var response = restTemplate.postForObject(paymentUrl, new HttpEntity<>(gatewayRequest),
-                    PaymentGatewayResponse.class);
+        List<Future<PaymentSettlement>> calls = new ArrayList<>();
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var event : claimed) {
+                if (processing.contains(event.getTransactionId())) {
+                    calls.add(executor.submit(() -> charge(event)));
+                }
+            }
+        }
 
-            if (response != null && response.getCustomId() != null) {
-                updateStatus(transaction.get(), PaymentTransactionStatus.APPROVED);
-                // Atualizar a assinatura:
-                subscriptionService.renewSubscription(event.getSubscriptionId());
+        List<PaymentSettlement> settlements = new ArrayList<>();
+        for (var call : calls) {
+            // charge() não lança: todo erro vira um PaymentSettlement.
+            var settlement = call.resultNow();
+            if (settlement != null) {
+                settlements.add(settlement);
             }
+        }
 
-        } catch (HttpClientErrorException e) {
-            log.warn("Pagamento RECUSADO pelo gateway (4xx).", e.getMessage());
-
-            if (event.getRejectedPaymentCount() < 3) {
-                log.info("Tentando novamente... tentativa {}/3", event.getRejectedPaymentCount() + 1);
-                updateStatus(transaction.get(), PaymentTransactionStatus.PENDING_RETRY);
-                event.setRejectedPaymentCount(event.getRejectedPaymentCount() + 1);
-                reenqueWithDelay(event, declinedPaymentRetryIntervalInSeconds);
-            } else {
-                log.error("Tentativas esgotadas de pagamento esgotadas para transação {}.", event.getTransactionId());
-
-                // Publica evento de cancelamento da assinatura
-                SubscriptionCancelEvent cancelEvent = SubscriptionCancelEvent.builder()
-                        .subscriptionId(event.getSubscriptionId())
-                        .reason("Pagamento recusado após máximo de tentativas: " + e.getMessage())
-                        .build();
-
-                rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_SUBSCRIPTION,
-                        RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL, cancelEvent);
-
-                updateStatus(transaction.get(), PaymentTransactionStatus.DECLINED, e.getMessage());
+        List<PaymentTransactionEvent> rejected = new ArrayList<>();
+        settlements.stream().filter(PaymentSettlement::releaseClaim)
+                .forEach(settlement -> paymentIdempotencyStore.release(settlement.event()));
+        try {
+            paymentTransactionStateService.settleAll(settlements, owner);
+        } catch (RuntimeException e) {
+            log.error("Erro gravando o lote de {} resultados. Gravando um a um.", settlements.size(), e);
+            settlements = settleEach(settlements, owner, rejected);
+        }
+        settlements.forEach(settlement -> attemptSettled(attempts.get(settlement.event().getTransactionId()),
+                settlement));
+
+        settlements.stream()
+                .filter(settlement -> settlement.failure() != null)
+                .map(PaymentSettlement::event)
+                .forEach(rejected::add);
+        return PaymentBatchResult.rejected(rejected);
+    }
+
+    /*
+     * Plano B do lote quando o settleAll falha: grava cada resultado na sua própria transação. O que falhar de
+     * novo já foi cobrado, então não volta para a fila: vai para rejected, mantendo a reivindicação no Redis, e a
+     * transação fica em PROCESSING até o lease expirar. Retorna os resultados gravados.
+     */
+    private List<PaymentSettlement> settleEach(List<PaymentSettlement> settlements, UUID owner,
+            List<PaymentTransactionEvent> rejected) {
+        List<PaymentSettlement> settled = new ArrayList<>();
+        for (var settlement : settlements) {
+            try {
+                settle(settlement, owner);
+                settled.add(settlement);
+            } catch (RuntimeException e) {
+                settleFailed(settlement, e);
+                rejected.add(settlement.event());
             }
+        }
+        return settled;
+    }
+
+    // Cobrança feita sem resultado gravado: a reivindicação fica e a mensagem vai para a DLQ.
+    private void settleFailed(PaymentSettlement settlement, RuntimeException e) {
+        log.error("Transação {} cobrada mas sem resultado gravado ({}). Enviando para a DLQ.",
+                settlement.event().getTransactionId(), settlement.status(), e);
+        meterRegistry.counter("payment.settle.failures").increment();
+    }
 
+    /*
+     * Chama o gateway e traduz a resposta no resultado a gravar. Retorna nulo quando não há nada a gravar
+     * agora (modo callback, ou resposta sem customId).
+     */
+    private PaymentSettlement charge(PaymentTransactionEvent event) {
+        if (event.getFirstAttemptAt() == 0) {
+            event.setFirstAttemptAt(System.currentTimeMillis());
+        }
+
+        boolean callbackMode = MODE_CALLBACK.equals(gatewayMode);
+
+        // Aqui teríamos outras informações como produto, cpf, etc.
+        var gatewayRequest = PaymentGatewayRequest.builder()
+                .amount(event.getPriceInCents())
+                .customId(event.getTransactionId())
+                .callbackUrl(callbackMode ? callbackUrl : null)
+                .build();
+
+        PaymentGatewayResponse response;
+        try {
+            if (callbackMode) {
+                // A mensagem é confirmada logo após o envio; o resultado chega pela fila payment.gateway.response.
+                paymentGatewayClient.submit(gatewayRequest);
+                return null;
+            }
+            response = paymentGatewayClient.charge(gatewayRequest);
+        } catch (HttpClientErrorException e) {
+            return declined(event, e.getMessage());
         } catch (HttpServerErrorException | ResourceAccessException e) {
-            log.warn("Gateway instável. Marcando para Retry.", e);
-            reenqueWithDelay(event, 10);
+            return gatewayError(event, e);
+        } catch (UnavailableGatewayException e) {
+            // O gateway nem foi chamado: devolve para a fila sem contar como tentativa.
+            log.warn("Gateway indisponível para a transação {}: {}", event.getTransactionId(), e.getMessage());
+            countRetry("GATEWAY_REJECTED", "scheduled");
+            // Os contadores não mudam, então a reivindicação precisa ser liberada antes do reenfileiramento.
+            return PaymentSettlement.retry(event, PaymentTransactionStatus.GATEWAY_ERROR,
+                    Math.max(e.getRetryAfterMs(), unavailableGatewayRetryDelayMs), true);
         } catch (Exception e) {
             log.error("Erro fatal/interno no processamento.", e);
-            updateStatus(transaction.get(), PaymentTransactionStatus.ABORTED);
-            throw new AmqpRejectAndDontRequeueException("Erro desconhecido: " + e.getMessage(), e);
+            return PaymentSettlement.failed(event, e);
+        }
+
+        if (response != null && response.getCustomId() != null) {
+            return PaymentSettlement.approved(event);
+        }
+        return null;
+    }
+
+    /*
+     * ALREADY_DONE é descartada. IN_FLIGHT volta para a fila com atraso em vez de ser confirmada: se quem está
+     * com a tentativa caiu no meio, a reivindicação expira e a nova entrega assume a transação pelo lease do
+     * banco (payment.processing.lease-seconds).
+     */
+    private boolean claimed(PaymentTransactionEvent event, PaymentIdempotencyStore.Claim claim) {
+        if (claim == PaymentIdempotencyStore.Claim.CLAIMED) {
+            return true;
+        }
+        if (claim == PaymentIdempotencyStore.Claim.IN_FLIGHT) {
+            log.info("Tentativa da transação {} em andamento em outra entrega. Reenfileirando em {}ms.",
+                    event.getTransactionId(), inFlightRetryDelayMs);
+            subscriptionRenewalProducer.sendRenewalStart(event, inFlightRetryDelayMs);
+        } else {
+            log.info("Mensagem duplicada da transação {} ({}). Ignorando.", event.getTransactionId(), claim);
+        }
+        return false;
+    }
+
+    /*
+     * Claim no banco perdido para outro consumidor com lease válido: a mensagem volta com atraso, como a
+     * IN_FLIGHT, e assume a transação se o lease vencer sem resultado. Se o dono gravar antes, a cópia é
+     * descartada pelo marcador da tentativa ou da transação.
+     */
+    private void processingElsewhere(PaymentTransactionEvent event) {
+        log.info("Transação {} em PROCESSING com outro consumidor. Reenfileirando em {}ms.",
+                event.getTransactionId(), inFlightRetryDelayMs);
+        subscriptionRenewalProducer.sendRenewalStart(event, inFlightRetryDelayMs);
+    }
+
+    // Resultado gravado: a transação finalizada ou a tentativa concluída descartam as duplicatas dali em diante.
+    private void attemptSettled(PaymentTransactionEvent attempt, PaymentSettlement settlement) {
+        if (settlement.isFinal()) {
+            paymentIdempotencyStore.markDone(settlement.event().getTransactionId());
+        } else if (!settlement.releaseClaim()) {
+            paymentIdempotencyStore.markAttemptDone(attempt);
+        }
+    }
+
+    private void settle(PaymentSettlement settlement, UUID owner) {
+        var event = settlement.event();
+        if (settlement.releaseClaim()) {
+            paymentIdempotencyStore.release(event);
+        }
+
+        switch (settlement.status()) {
+            case APPROVED -> paymentTransactionStateService.approve(event, owner);
+            case PENDING_RETRY, GATEWAY_ERROR -> paymentTransactionStateService.scheduleRetry(settlement.status(),
+                    event, settlement.retryDelayMs(), owner);
+            case DECLINED -> paymentTransactionStateService.decline(event, settlement.reason(),
+                    settlement.cancelEvent(), owner);
+            case ABORTED -> paymentTransactionStateService.abort(event, settlement.reason(), owner);
+            default -> throw new IllegalStateException("Status inesperado no resultado: " + settlement.status());
         }
     }
 
-    private void reenqueWithDelay(PaymentTransactionEvent event, Integer delayInSeconds) {
-        rabbitTemplate.convertAndSend(RabbitMQConfig.EXCHANGE_SUBSCRIPTION,
-                RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START, event, message -> {
-                    message.getMessageProperties().setHeader("x-delay",
-                            delayInSeconds * 1000);
-                    return message;
-                });
+    /*
+     * Recebe o callback do gateway e só enfileira a resposta; a liquidação acontece no consumidor da fila
+     * payment.gateway.response, fora da thread HTTP.
+     */
+    public void registerCallback(PaymentCallbackRequest request) {
+        subscriptionRenewalProducer.sendPaymentResponse(
+                com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse.builder()
+                        .transactionId(request.getTransactionId())
+                        .success(request.isSuccess())
+                        .message(request.getMessage())
+                        .build());
     }
 
-    private boolean isFinalStatus(String status) {
-        return PaymentTransactionStatus.APPROVED.name().equals(status)
-                || PaymentTransactionStatus.DECLINED.name().equals(status)
-                || PaymentTransactionStatus.ABORTED.name().equals(status);
+    /*
+     * Liquida a transação a partir da resposta assíncrona do gateway (modo callback).
+     */
+    public void settlePayment(com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse response) {
+        log.info("Liquidando transação {} pela resposta do gateway. Sucesso: {}", response.getTransactionId(),
+                response.isSuccess());
+
+        var transaction = paymentTransactionStateService.findProcessing(response.getTransactionId());
+        if (transaction.isEmpty()) {
+            log.warn("Transação {} inexistente ou fora de PROCESSING. Ignorando resposta.",
+                    response.getTransactionId());
+            return;
+        }
+
+        long startedAt = transaction.get().getDataInicio() == null ? 0
+                : transaction.get().getDataInicio().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        var event = PaymentTransactionEvent.builder()
+                .subscriptionId(transaction.get().getSubscription().getId())
+                .transactionId(transaction.get().getId())
+                .priceInCents(transaction.get().getPriceInCents())
+                .rejectedPaymentCount(transaction.get().getRejectedPaymentCount() == null ? 0
+                        : transaction.get().getRejectedPaymentCount())
+                .startedAt(startedAt)
+                .firstAttemptAt(startedAt)
+                .build();
+
+        var settlement = response.isSuccess() ? PaymentSettlement.approved(event)
+                : declined(event, response.getMessage());
+        // Grava em nome de quem submeteu a cobrança: se outro consumidor reivindicou depois, a resposta perde.
+        settle(settlement, transaction.get().getProcessingOwner());
+        if (settlement.isFinal()) {
+            paymentIdempotencyStore.markDone(event.getTransactionId());
+        }
     }
 
-    private void updateStatus(PaymentTransaction transaction, PaymentTransactionStatus processing) {
-        transaction.setStatus(processing.name());
-        if (isFinalStatus(transaction.getStatus())) {
-            transaction.setDataFinalizacao(LocalDateTime.now());
+    private PaymentSettlement declined(PaymentTransactionEvent event, String reason) {
+        log.warn("Pagamento RECUSADO pelo gateway: {}", reason);
+
+        int attempt = event.getRejectedPaymentCount() + 1;
+        var decision = paymentRetryPolicy.decide(RetryCause.DECLINED, attempt, event.getFirstAttemptAt());
+
+        countRetry(RetryCause.DECLINED.name(), decision.retry() ? "scheduled" : "exhausted");
+        if (decision.retry()) {
+            log.info("Tentando novamente em {}ms... tentativa {}", decision.delayMs(), attempt);
+            event.setRejectedPaymentCount(attempt);
+            return PaymentSettlement.retry(event, PaymentTransactionStatus.PENDING_RETRY, decision.delayMs(), false);
         }
-        paymentTransactionRepository.save(transaction);
+
+        log.error("Tentativas esgotadas de pagamento esgotadas para transação {}.", event.getTransactionId());
+
+        SubscriptionCancelEvent cancelEvent = SubscriptionCancelEvent.builder()
+                .subscriptionId(event.getSubscriptionId())
+                .reason("Pagamento recusado após máximo de tentativas: " + reason)
+                .build();
+
+        return PaymentSettlement.declined(event, reason, cancelEvent);
     }
 
-    private void updateStatus(PaymentTransaction transaction, PaymentTransactionStatus status,
-            String cancellationReason) {
-        transaction.setStatus(status.name());
-        transaction.setCancellationReason(cancellationReason);
-        if (isFinalStatus(transaction.getStatus())) {
-            transaction.setDataFinalizacao(LocalDateTime.now());
+    private PaymentSettlement gatewayError(PaymentTransactionEvent event, RuntimeException e) {
+        int attempt = event.getGatewayErrorCount() + 1;
+        var decision = paymentRetryPolicy.decide(RetryCause.GATEWAY_UNAVAILABLE, attempt, event.getFirstAttemptAt());
+
+        countRetry(RetryCause.GATEWAY_UNAVAILABLE.name(), decision.retry() ? "scheduled" : "exhausted");
+        if (decision.retry()) {
+            log.warn("Gateway instável. Nova tentativa {} em {}ms.", attempt, decision.delayMs(), e);
+            event.setGatewayErrorCount(attempt);
+            return PaymentSettlement.retry(event, PaymentTransactionStatus.GATEWAY_ERROR, decision.delayMs(), false);
         }
-        paymentTransactionRepository.save(transaction);
+
+        // Falha do gateway, não do cliente: aborta a transação sem cancelar a assinatura.
+        log.error("Tentativas esgotadas por indisponibilidade do gateway para transação {}.",
+                event.getTransactionId(), e);
+        return PaymentSettlement.aborted(event, "Gateway indisponível após máximo de tentativas: " + e.getMessage());
+    }
+
+    // payment.retries (cause, result): retentativas agendadas e esgotadas por causa.
+    private void countRetry(String cause, String result) {
+        meterRegistry.counter("payment.retries", "cause", cause, "result", result).increment();
     }
 }
@@ -0,0 +1,235 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.PaymentTransaction;
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.StartRange;
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.Transition;
+import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+ * Passos curtos de banco do processamento de pagamento. Cada método é uma transação própria, para que a
+ * conexão JDBC não fique presa enquanto o PaymentTransactionService espera a resposta do gateway.
+ * As mudanças de status são UPDATEs condicionais (PaymentTransactionRepository): uma ida ao banco por passo,
+ * sem carregar a entidade, e só quem vence a transição segue com os efeitos (outbox, renovação).
+ * owner é o token de quem reivindicou a transação: os resultados só são gravados por quem ainda é o dono.
+ * Os UPDATEs levam a faixa de data_inicio do evento (StartRange) para tocar só a partição da transação.
+ * Cada passo é medido em payment.db.step (step) e cada mudança de status conta em
+ * payment.transactions.transitions (status).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentTransactionStateService {
+
+    private final PaymentTransactionRepository paymentTransactionRepository;
+    private final SubscriptionService subscriptionService;
+    private final SubscriptionRenewalProducer subscriptionRenewalProducer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payment.processing.lease-seconds}")
+    private long processingLeaseSeconds;
+
+    /*
+     * Reivindica a transação (PROCESSING) por um lease, em nome de owner. Retorna false se ela já estiver
+     * finalizada, em processamento por outro consumidor, ou não existir (findFinished diz qual o caso).
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "claim" })
+    @Transactional
+    public boolean claimForProcessing(PaymentTransactionEvent event, UUID owner) {
+        var now = LocalDateTime.now();
+        var started = StartRange.of(event.getStartedAt());
+        if (paymentTransactionRepository.claim(event.getTransactionId(), started.from(), started.to(),
+                PaymentTransactionStatus.CLAIMABLE, now, now.plusSeconds(processingLeaseSeconds), owner) == 0) {
+            log.warn("Transação {} finalizada, em processamento ou inexistente. Ignorando.",
+                    event.getTransactionId());
+            return false;
+        }
+        counted(PaymentTransactionStatus.PROCESSING, 1);
+        return true;
+    }
+
+    /*
+     * Versão em lote do claimForProcessing: um único UPDATE para todas as transações. Retorna os ids
+     * reivindicados.
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "claim_batch" })
+    @Transactional
+    public Set<UUID> claimAllForProcessing(Collection<PaymentTransactionEvent> events, UUID owner) {
+        var now = LocalDateTime.now();
+        var started = events.stream()
+                .map(event -> StartRange.of(event.getStartedAt()))
+                .reduce(StartRange::span)
+                .orElse(StartRange.ANY);
+        Set<UUID> claimed = new HashSet<>(paymentTransactionRepository.claimAll(
+                events.stream().map(PaymentTransactionEvent::getTransactionId).toList(), started,
+                PaymentTransactionStatus.CLAIMABLE, now, now.plusSeconds(processingLeaseSeconds), owner));
+
+        if (claimed.size() < events.size()) {
+            log.warn("{} transações do lote finalizadas, em processamento ou inexistentes. Ignorando.",
+                    events.size() - claimed.size());
+        }
+        counted(PaymentTransactionStatus.PROCESSING, claimed.size());
+        return claimed;
+    }
+
+    /*
+     * Das transações cujo claim foi perdido, as que já estão finalizadas. As demais estão em PROCESSING com
+     * outro consumidor (ou não existem) e não podem ser dadas como concluídas.
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "find_finished" })
+    @Transactional(readOnly = true)
+    public Set<UUID> findFinished(Collection<UUID> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(paymentTransactionRepository.findFinishedIds(transactionIds,
+                PaymentTransactionStatus.FINAL));
+    }
+
+    /*
+     * Transação em PROCESSING, ou seja, submetida ao gateway e aguardando a resposta assíncrona: só essas
+     * podem ser liquidadas pelo callback.
+     * A resposta do gateway só traz o id, então a busca passa pelo índice da chave em cada partição; são poucas,
+     * já que as antigas são removidas pelo PaymentTransactionArchiver.
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "find_processing" })
+    @Transactional(readOnly = true)
+    public Optional<PaymentTransaction> findProcessing(UUID transactionId) {
+        return paymentTransactionRepository.findById(transactionId)
+                .filter(transaction -> PaymentTransactionStatus.PROCESSING.name().equals(transaction.getStatus()));
+    }
+
+    @Timed(value = "payment.db.step", extraTags = { "step", "approve" })
+    @Transactional
+    public boolean approve(PaymentTransactionEvent event, UUID owner) {
+        if (!finish(event, PaymentTransactionStatus.APPROVED, null, owner)) {
+            return false;
+        }
+        // Atualizar a assinatura:
+        subscriptionService.renewSubscription(event.getSubscriptionId());
+        return true;
+    }
+
+    /*
+     * Registra a falha não definitiva e reenfileira o evento com atraso na mesma transação (via outbox).
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "schedule_retry" })
+    @Transactional
+    public boolean scheduleRetry(PaymentTransactionStatus status, PaymentTransactionEvent event, long delayMs,
+            UUID owner) {
+        var started = StartRange.of(event.getStartedAt());
+        if (paymentTransactionRepository.markForRetry(event.getTransactionId(), started.from(), started.to(),
+                status.name(), event.getRejectedPaymentCount(), owner) == 0) {
+            lost(event.getTransactionId(), status);
+            return false;
+        }
+        counted(status, 1);
+        subscriptionRenewalProducer.sendRenewalStart(event, delayMs);
+        return true;
+    }
+
+    @Timed(value = "payment.db.step", extraTags = { "step", "decline" })
+    @Transactional
+    public boolean decline(PaymentTransactionEvent event, String reason, SubscriptionCancelEvent cancelEvent,
+            UUID owner) {
+        if (!finish(event, PaymentTransactionStatus.DECLINED, reason, owner)) {
+            return false;
+        }
+        // Publica evento de cancelamento da assinatura
+        subscriptionRenewalProducer.sendCancelSubscription(cancelEvent);
+        return true;
+    }
+
+    @Timed(value = "payment.db.step", extraTags = { "step", "abort" })
+    @Transactional
+    public boolean abort(PaymentTransactionEvent event, String reason, UUID owner) {
+        return finish(event, PaymentTransactionStatus.ABORTED, reason, owner);
+    }
+
+    /*
+     * Grava de uma vez os resultados de um lote de cobranças: as transições vão num JDBC batch condicional,
+     * e só as que venceram geram outbox e renovação (assinaturas lidas uma vez só), tudo numa única transação.
+     */
+    @Timed(value = "payment.db.step", extraTags = { "step", "settle_batch" })
+    @Transactional
+    public void settleAll(List<PaymentSettlement> settlements, UUID owner) {
+        if (settlements.isEmpty()) {
+            return;
+        }
+
+        var now = LocalDateTime.now();
+        var won = paymentTransactionRepository.transitionAll(settlements.stream()
+                .map(settlement -> new Transition(settlement.event().getTransactionId(),
+                        StartRange.of(settlement.event().getStartedAt()),
+                        settlement.status().name(),
+                        settlement.event().getRejectedPaymentCount(),
+                        settlement.reason(),
+                        settlement.isFinal() ? now : null))
+                .toList(), owner);
+
+        List<UUID> renewals = new ArrayList<>();
+        for (int i = 0; i < settlements.size(); i++) {
+            var settlement = settlements.get(i);
+            var event = settlement.event();
+            if (!won[i]) {
+                lost(event.getTransactionId(), settlement.status());
+                continue;
+            }
+
+            counted(settlement.status(), 1);
+            switch (settlement.status()) {
+                case APPROVED -> renewals.add(event.getSubscriptionId());
+                case PENDING_RETRY, GATEWAY_ERROR ->
+                    subscriptionRenewalProducer.sendRenewalStart(event, settlement.retryDelayMs());
+                case DECLINED -> subscriptionRenewalProducer.sendCancelSubscription(settlement.cancelEvent());
+                default -> {
+                }
+            }
+        }
+
+        subscriptionService.renewSubscriptions(renewals);
+    }
+
+    private boolean finish(PaymentTransactionEvent event, PaymentTransactionStatus status, String reason,
+            UUID owner) {
+        var started = StartRange.of(event.getStartedAt());
+        if (paymentTransactionRepository.finish(event.getTransactionId(), started.from(), started.to(),
+                status.name(), reason, LocalDateTime.now(), owner) == 0) {
+            lost(event.getTransactionId(), status);
+            return false;
+        }
+        counted(status, 1);
+        return true;
+    }
+
+    // A transação não estava mais em PROCESSING conosco: outro consumidor já gravou o resultado ou reivindicou
+    // a transação depois que o nosso lease venceu.
+    private void lost(UUID transactionId, PaymentTransactionStatus status) {
+        log.warn("Transição da transação {} para {} perdida: ela não está mais em PROCESSING com este dono.",
+                transactionId, status);
+        meterRegistry.counter("payment.transactions.transitions.lost", "status", status.name()).increment();
+    }
+
+    private void counted(PaymentTransactionStatus status, int count) {
+        meterRegistry.counter("payment.transactions.transitions", "status", status.name()).increment(count);
+    }
+}
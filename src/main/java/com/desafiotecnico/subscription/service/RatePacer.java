@@ -0,0 +1,43 @@
+package com.desafiotecnico.subscription.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/*
+ * Ritmo fixo de permissões por segundo, compartilhado pelas threads que o usam.
+ * A primeira aquisição passa na hora; as seguintes esperam o tempo das permissões já consumidas.
+ */
+class RatePacer {
+
+    private final long nanosPerPermit;
+    private final LongSupplier nanoClock;
+    private long nextFreeNanos;
+
+    RatePacer(double permitsPerSecond) {
+        this(permitsPerSecond, System::nanoTime);
+    }
+
+    RatePacer(double permitsPerSecond, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("Taxa deve ser positiva: " + permitsPerSecond);
+        }
+        this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.nanoClock = nanoClock;
+        this.nextFreeNanos = nanoClock.getAsLong();
+    }
+
+    void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    // Reserva as permissões e retorna quanto o chamador precisa esperar antes de usá-las.
+    synchronized long reserve(int permits) {
+        long now = nanoClock.getAsLong();
+        long waitNanos = nextFreeNanos - now;
+        nextFreeNanos = Math.max(nextFreeNanos, now) + permits * nanosPerPermit;
+        return Math.max(0, waitNanos);
+    }
+}
@@ -0,0 +1,144 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.RenewalJob;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import com.desafiotecnico.subscription.error.RenewalJobRunningException;
+import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import com.desafiotecnico.subscription.repository.RenewalJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Jobs assíncronos do trigger de renovação. O POST só grava o job e devolve o id; o processamento roda numa
+ * virtual thread. A instância dona manda heartbeat periodicamente; se ela cair, outra instância (ou ela mesma
+ * depois de reiniciar) assume o job e continua do keyset commitado de cada fatia, com o limite que sobrou.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RenewalJobService {
+
+    private final RenewalJobRepository renewalJobRepository;
+    private final PaymentTransactionRepository paymentTransactionRepository;
+    private final TriggersService triggersService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${renewal.jobs.stale-after-seconds}")
+    private long staleAfterSeconds;
+
+    /*
+     * Um job RUNNING por data (índice da migration V9): dois jobs da mesma data dividiriam as fatias e o segundo
+     * terminaria sem encontrar nada. Com um job em andamento para a data, lança RenewalJobRunningException com
+     * o id dele.
+     */
+    public RenewalJob start(int maxSubscriptions, LocalDate dateToProcess) {
+        renewalJobRepository.findFirstByRunDateAndStatus(dateToProcess, RenewalJobStatus.RUNNING)
+                .ifPresent(running -> {
+                    throw new RenewalJobRunningException(running.getId());
+                });
+
+        var now = LocalDateTime.now();
+        RenewalJob job;
+        try {
+            job = renewalJobRepository.save(RenewalJob.builder()
+                    .runDate(dateToProcess)
+                    .maxSubscriptions(maxSubscriptions)
+                    .status(RenewalJobStatus.RUNNING)
+                    .found(0)
+                    .owner(triggersService.instanceId())
+                    .heartbeatAt(now)
+                    .createdAt(now)
+                    .build());
+        } catch (DataIntegrityViolationException e) {
+            // Outro POST da mesma data criou o job entre a consulta e o insert.
+            var running = renewalJobRepository.findFirstByRunDateAndStatus(dateToProcess, RenewalJobStatus.RUNNING)
+                    .orElseThrow(() -> e);
+            throw new RenewalJobRunningException(running.getId());
+        }
+
+        log.info("Job de renovação {} criado. Máximo: {}, Data: {}", job.getId(), maxSubscriptions, dateToProcess);
+        submit(job, false);
+        return job;
+    }
+
+    public Optional<RenewalJob> find(UUID jobId) {
+        return renewalJobRepository.findById(jobId);
+    }
+
+    /*
+     * Marca o job como cancelado. Quem o executa percebe no próximo bloco, que é desfeito.
+     */
+    public boolean cancel(UUID jobId) {
+        return renewalJobRepository.finish(jobId, RenewalJobStatus.CANCELLED, null, LocalDateTime.now()) == 1;
+    }
+
+    public Map<String, Long> transactionsByStatus(UUID jobId) {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : paymentTransactionRepository.countByStatusForJob(jobId)) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Scheduled(fixedDelayString = "${renewal.jobs.heartbeat-interval-ms}")
+    public void heartbeatAndResume() {
+        var now = LocalDateTime.now();
+        var staleBefore = now.minusSeconds(staleAfterSeconds);
+        try {
+            renewalJobRepository.heartbeat(triggersService.instanceId(), now);
+
+            for (var job : renewalJobRepository.findByStatusAndHeartbeatAtBefore(RenewalJobStatus.RUNNING,
+                    staleBefore)) {
+                if (renewalJobRepository.claimStale(job.getId(), triggersService.instanceId(), now, staleBefore) == 1) {
+                    log.warn("Retomando job de renovação {} abandonado por {}", job.getId(), job.getOwner());
+                    renewalJobRepository.findById(job.getId()).ifPresent(claimed -> submit(claimed, true));
+                }
+            }
+        } catch (Exception e) {
+            log.error("Erro no heartbeat dos jobs de renovação", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Jobs interrompidos continuam RUNNING e são retomados quando o heartbeat vencer.
+        executor.shutdownNow();
+    }
+
+    private void submit(RenewalJob job, boolean resumed) {
+        executor.submit(() -> run(job, resumed));
+    }
+
+    private void run(RenewalJob job, boolean resumed) {
+        try {
+            int remaining = job.getMaxSubscriptions() - job.getFound();
+            if (remaining > 0) {
+                triggersService.triggerRenovation(job.getId(), remaining, job.getRunDate(), resumed);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            renewalJobRepository.finish(job.getId(), RenewalJobStatus.COMPLETED, null, LocalDateTime.now());
+        } catch (Exception e) {
+            log.error("Erro no job de renovação {}", job.getId(), e);
+            String message = String.valueOf(e.getMessage());
+            renewalJobRepository.finish(job.getId(), RenewalJobStatus.FAILED,
+                    message.length() > 1024 ? message.substring(0, 1024) : message, LocalDateTime.now());
+        }
+    }
+}
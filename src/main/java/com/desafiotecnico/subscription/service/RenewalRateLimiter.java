@@ -0,0 +1,71 @@
+package com.desafiotecnico.subscription.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Taxa global da renovação agendada, compartilhada por todas as fatias de todas as instâncias: janelas de um
+ * segundo contadas no Redis, uma chave por data e segundo. Cada bloco reserva na janela corrente o que ainda
+ * couber dela (o bloco encolhe) ou espera a próxima, então a taxa total não depende de quantas fatias ou
+ * instâncias estão rodando.
+ * Se o Redis estiver fora, cai para um ritmo local na taxa inteira, compartilhado pelas fatias desta instância.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RenewalRateLimiter {
+
+    private static final long WINDOW_MS = 1000;
+
+    private static final RedisScript<Long> RESERVE_SCRIPT = RedisScript.of("""
+            local used = tonumber(redis.call('GET', KEYS[1]) or '0')
+            local granted = math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - used)
+            if granted <= 0 then return 0 end
+            redis.call('INCRBY', KEYS[1], granted)
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return granted
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final Map<Double, RatePacer> fallbackPacers = new ConcurrentHashMap<>();
+
+    // Assinaturas por janela de um segundo; taxas abaixo de 1/s liberam uma por segundo.
+    static int permitsPerWindow(double permitsPerSecond) {
+        return (int) Math.max(1, Math.round(permitsPerSecond));
+    }
+
+    /*
+     * Espera até conseguir ao menos uma das permits assinaturas pedidas e retorna quantas foram concedidas.
+     */
+    int acquire(LocalDate date, int permits, double permitsPerSecond) throws InterruptedException {
+        int limit = permitsPerWindow(permitsPerSecond);
+
+        while (true) {
+            long now = System.currentTimeMillis();
+            long window = now / WINDOW_MS;
+            Long reserved;
+            try {
+                reserved = redisTemplate.execute(RESERVE_SCRIPT, List.of("renewal:rate:" + date + ":" + window),
+                        String.valueOf(permits), String.valueOf(limit), String.valueOf(2 * WINDOW_MS));
+            } catch (DataAccessException e) {
+                log.warn("Redis indisponível para a taxa da renovação. Usando o ritmo local desta instância.", e);
+                fallbackPacers.computeIfAbsent(permitsPerSecond, RatePacer::new).acquire(permits);
+                return permits;
+            }
+            if (reserved != null && reserved > 0) {
+                return reserved.intValue();
+            }
+            Thread.sleep((window + 1) * WINDOW_MS - now);
+        }
+    }
+}
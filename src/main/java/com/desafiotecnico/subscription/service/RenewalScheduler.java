@@ -0,0 +1,54 @@
+package com.desafiotecnico.subscription.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+ * Renovação contínua, sem depender do POST /triggers/renewal: a cada verificação esta instância entra na rodada
+ * do dia (ou começa uma nova, se a anterior terminou) e processa as fatias que conseguir reivindicar na taxa
+ * configurada. O lease de cada fatia faz o papel de trava distribuída (um líder por fatia).
+ * O tick só dispara a rodada numa virtual thread e retorna; as fatias são processadas pelos workers em virtual
+ * threads do TriggersService.runShards. A próxima rodada desta instância só começa quando a atual termina.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RenewalScheduler {
+
+    private final TriggersService triggersService;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${renewal.scheduler.enabled}")
+    private boolean enabled;
+
+    @Value("${renewal.scheduler.rate-per-second}")
+    private double ratePerSecond;
+
+    @Scheduled(fixedDelayString = "${renewal.scheduler.poll-interval-ms}")
+    public void tick() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now();
+        Thread.ofVirtual().name("renewal-scheduler").start(() -> {
+            try {
+                int total = triggersService.renewAtRate(today, ratePerSecond);
+                if (total > 0) {
+                    log.info("Renovação agendada de {}: {} assinaturas enviadas", today, total);
+                }
+            } catch (Exception e) {
+                log.error("Erro na renovação agendada de {}", today, e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+}
@@ -1,20 +1,31 @@
 package com.desafiotecnico.subscription.service;
 
+import com.desafiotecnico.subscription.cache.SubscriptionLookupCache;
 import com.desafiotecnico.subscription.domain.SubscriptionStatus;
 
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
 import com.desafiotecnico.subscription.dto.request.SubscriptionRequest;
 import com.desafiotecnico.subscription.domain.Plan;
 import com.desafiotecnico.subscription.domain.Subscription;
 import com.desafiotecnico.subscription.error.CodedException;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
 import com.desafiotecnico.subscription.repository.SubscriptionRepository;
 import com.desafiotecnico.subscription.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -24,18 +35,29 @@ public class SubscriptionService {
 
     private final SubscriptionRepository subscriptionRepository;
     private final UserRepository userRepository;
+    private final SubscriptionLookupCache subscriptionLookupCache;
+    private final SubscriptionRenewalProducer subscriptionRenewalProducer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${subscription.cancel.retry.max-attempts}")
+    private int cancelRetryMaxAttempts;
+
+    @Value("${subscription.cancel.retry.delay-ms}")
+    private long cancelRetryDelayMs;
 
     @Transactional
     public Subscription createSubscription(SubscriptionRequest request) {
         log.info("Creating subscription for user {}", request.getUserId());
 
-        if (!userRepository.existsById(request.getUserId())) {
+        // A trava na linha do usuário já confirma que ele existe e serializa as criações concorrentes dele.
+        if (userRepository.lockById(request.getUserId()).isEmpty()) {
             throw new CodedException("USER_NOT_FOUND", "Usuário não encontrado.");
         }
 
         // Simple validation: check if user already has an active subscription
-        // (expiration date > today)
-        if (subscriptionRepository.findFirstByUserIdAndExpirationDateAfter(request.getUserId(), LocalDate.now())
+        // (expiration date > today). Uma assinatura vigente no cache recusa sem ir ao banco; a ausência vem
+        // sempre do banco (não é guardada), então uma criação concorrente em outra instância não passa.
+        if (subscriptionLookupCache.activeSubscriptionExpiration(request.getUserId(), LocalDate.now())
                 .isPresent()) {
             throw new CodedException("ACTIVE_SUBSCRIPTION_EXISTS", "Usuário já possui uma assinatura ativa.");
         }
@@ -56,45 +78,101 @@ public class SubscriptionService {
                 .expirationDate(LocalDate.now().plusMonths(1))
                 .build();
 
-        return subscriptionRepository.save(subscription);
+        var saved = subscriptionRepository.save(subscription);
+        subscriptionLookupCache.evictActiveSubscription(saved.getUserId());
+        return saved;
     }
 
+    /*
+     * Cancelamento em lote (SubscriptionCancelConsumer): um único UPDATE para o lote, cada assinatura com o seu
+     * motivo. Os eventos que não cancelaram nada voltam para a fila com atraso, via outbox na mesma transação,
+     * até subscription.cancel.retry.max-attempts; depois disso ficam registrados como falha (log e
+     * subscription.cancel.failures). Erros de banco propagam: o consumidor refaz o lote evento a evento e manda
+     * os que ainda falharem para retryFailedCancel.
+     * Retorna quantas assinaturas foram canceladas.
+     */
     @Transactional
-    public void cancelSubscription(UUID subscriptionId, String reason) {
-        try {
+    public int cancelSubscriptions(List<SubscriptionCancelEvent> events) {
+        Map<UUID, String> reasons = new LinkedHashMap<>();
+        events.forEach(event -> reasons.put(event.getSubscriptionId(), event.getReason()));
+
+        Set<UUID> cancelled = new HashSet<>();
+        for (var subscription : subscriptionRepository.cancelAll(reasons)) {
+            cancelled.add(subscription.id());
+            subscriptionLookupCache.evictActiveSubscription(subscription.userId());
+        }
 
-            log.info("Cencelando inscrição {}", subscriptionId);
+        for (var event : events) {
+            if (!cancelled.contains(event.getSubscriptionId())) {
+                retryCancel(event, "assinatura não encontrada");
+            }
+        }
 
-            Subscription subscription = subscriptionRepository.findById(subscriptionId)
-                    .orElseThrow(() -> new IllegalArgumentException("Subscription not found"));
+        log.info("{} assinaturas canceladas em lote de {} eventos", cancelled.size(), events.size());
+        return cancelled.size();
+    }
 
-            subscription.setStatus(SubscriptionStatus.CANCELADA);
-            subscription.setCancelReason(reason);
-            subscriptionRepository.save(subscription);
-        } catch (Exception e) {
-            log.error("Erro ao processar cancelamento de inscrição: ", e);
+    /*
+     * Cancelamento que falhou no banco mesmo sozinho: segue o caminho da assinatura não encontrada (nova
+     * tentativa com atraso via outbox, até max-attempts) em vez de voltar para a fila e travar o lote.
+     */
+    @Transactional
+    public void retryFailedCancel(SubscriptionCancelEvent event) {
+        retryCancel(event, "erro no banco");
+    }
+
+    private void retryCancel(SubscriptionCancelEvent event, String cause) {
+        int attempt = event.getAttempt() + 1;
+        if (attempt >= cancelRetryMaxAttempts) {
+            log.error("Cancelamento da assinatura {} falhou após {} tentativas: {}. Motivo: {}",
+                    event.getSubscriptionId(), attempt, cause, event.getReason());
+            meterRegistry.counter("subscription.cancel.failures", "result", "exhausted").increment();
+            return;
         }
+
+        log.warn("Cancelamento da assinatura {} falhou: {}. Nova tentativa {} em {}ms.",
+                event.getSubscriptionId(), cause, attempt, cancelRetryDelayMs);
+        meterRegistry.counter("subscription.cancel.failures", "result", "retry").increment();
+        subscriptionRenewalProducer.sendCancelSubscription(SubscriptionCancelEvent.builder()
+                .subscriptionId(event.getSubscriptionId())
+                .reason(event.getReason())
+                .attempt(attempt)
+                .build(), cancelRetryDelayMs);
     }
 
+    /*
+     * Renovação em um único UPDATE (validade = maior entre a atual e hoje, mais um mês), sem carregar a entidade.
+     */
     @Transactional
     public void renewSubscription(UUID subscriptionId) {
         log.info("Renovando assinatura {}", subscriptionId);
 
-        Subscription subscription = subscriptionRepository.findById(subscriptionId)
-                .orElseThrow(() -> new IllegalArgumentException("Subscription not found: " + subscriptionId));
+        var renewed = subscriptionRepository.renewAll(List.of(subscriptionId));
+        if (renewed.isEmpty()) {
+            throw new IllegalArgumentException("Subscription not found: " + subscriptionId);
+        }
 
-        LocalDate newExpirationDate;
-        if (subscription.getExpirationDate().isBefore(LocalDate.now())) {
-            newExpirationDate = LocalDate.now().plusMonths(1);
-        } else {
-            newExpirationDate = subscription.getExpirationDate().plusMonths(1);
+        subscriptionLookupCache.evictActiveSubscription(renewed.get(0).userId());
+        log.info("Assinatura {} renovada com sucesso. Nova validade: {}", subscriptionId,
+                renewed.get(0).expirationDate());
+    }
+
+    /*
+     * Versão em lote do renewSubscription, usada pelo consumo em lote da renovação: um único UPDATE para todas
+     * as assinaturas aprovadas do lote.
+     */
+    @Transactional
+    public void renewSubscriptions(Collection<UUID> subscriptionIds) {
+        if (subscriptionIds.isEmpty()) {
+            return;
         }
 
-        subscription.setExpirationDate(newExpirationDate);
-        subscription.setLastRenewalDate(LocalDate.now());
-        subscription.setStatus(SubscriptionStatus.ATIVA);
+        var renewed = subscriptionRepository.renewAll(subscriptionIds);
+        if (renewed.size() < new HashSet<>(subscriptionIds).size()) {
+            throw new IllegalArgumentException("Subscription not found in batch: " + subscriptionIds);
+        }
 
-        subscriptionRepository.save(subscription);
-        log.info("Assinatura {} renovada com sucesso. Nova validade: {}", subscriptionId, newExpirationDate);
+        renewed.forEach(subscription -> subscriptionLookupCache.evictActiveSubscription(subscription.userId()));
+        log.info("{} assinaturas renovadas em lote", renewed.size());
     }
 }
@@ -2,19 +2,36 @@ package com.desafiotecnico.subscription.service;
 
 import com.desafiotecnico.subscription.domain.PaymentTransaction;
 import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.domain.RenewalCursor;
+import com.desafiotecnico.subscription.domain.RenewalShardLease;
+import com.desafiotecnico.subscription.domain.Subscription;
 import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.error.RenewalJobStoppedException;
+import com.desafiotecnico.subscription.error.ShardLeaseLostException;
 import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
 import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import com.desafiotecnico.subscription.repository.RenewalJobRepository;
+import com.desafiotecnico.subscription.repository.RenewalShardLeaseRepository;
 import com.desafiotecnico.subscription.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 @RequiredArgsConstructor
@@ -24,44 +41,248 @@ public class TriggersService {
         private final SubscriptionRepository subscriptionRepository;
         private final SubscriptionRenewalProducer subscriptionRenewalProducer;
         private final PaymentTransactionRepository paymentTransactionRepositiry;
+        private final RenewalShardLeaseRepository renewalShardLeaseRepository;
+        private final RenewalJobRepository renewalJobRepository;
+        private final TransactionTemplate transactionTemplate;
+        private final RenewalRateLimiter renewalRateLimiter;
+        private final MeterRegistry meterRegistry;
 
-        @Transactional
-        public void triggerRenovation(int batchSize, LocalDate dateToProccess) {
-                log.info("Disparando renovação. Batch: {}, Data: {}", batchSize, dateToProccess);
+        // Identifica esta instância como dona dos leases e dos jobs.
+        private final String instanceId = UUID.randomUUID().toString();
 
-                var subscriptions = subscriptionRepository.findSubscriptionToProccessPayment(
-                                dateToProccess,
-                                PageRequest.of(0, batchSize));
-
-                log.info("Registros encontrados: {}", subscriptions.size());
-
-                subscriptions.forEach(sub -> {
-                        // 1. Prepara e Salva a Transação (Dentro do contexto transacional)
-                        var transaction = PaymentTransaction.builder()
-                                        .subscription(sub)
-                                        .status(PaymentTransactionStatus.CREATED.name())
-                                        .dataInicio(java.time.LocalDateTime.now())
-                                        .priceInCents(sub.getPriceInCents())
-                                        .build();
-
-                        paymentTransactionRepositiry.save(transaction);
-
-                        // 2. Prepara o Evento
-                        var event = PaymentTransactionEvent.builder()
-                                        .subscriptionId(sub.getId())
-                                        .transactionId(transaction.getId())
-                                        .priceInCents(sub.getPriceInCents())
-                                        .build();
-
-                        // 3. O PULO DO GATO: Só envia SE e QUANDO o commit ocorrer
-                        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                                @Override
-                                public void afterCommit() {
-                                        log.debug("Transação commitada com sucesso. Enviando evento para ID {}",
-                                                        transaction.getId());
-                                        subscriptionRenewalProducer.sendRenewalStart(event);
+        /*
+         * Parâmetros de uma execução: data, limite global restante, tamanho do bloco, taxa alvo (zero sem ritmo)
+         * e o job (nulo na renovação agendada).
+         */
+        private record Run(LocalDate date, AtomicInteger budget, int chunk, double ratePerSecond, UUID jobId) {
+        }
+
+        @Value("${renewal.trigger.chunk-size}")
+        private Integer chunkSize;
+
+        @Value("${renewal.shards.count}")
+        private int shardCount;
+
+        @Value("${renewal.shards.parallelism}")
+        private int parallelism;
+
+        @Value("${renewal.shards.lease-seconds}")
+        private long leaseSeconds;
+
+        /*
+         * Processa as assinaturas vencidas na data (até maxSubscriptions), dividida em fatias de ids.
+         * Cada instância que chama o trigger reivindica fatias livres na tabela renewal_shard_leases e processa
+         * até "parallelism" delas ao mesmo tempo; várias instâncias dividem o mesmo dia sem repetir assinaturas.
+         * Cada bloco é commitado junto com o avanço do keyset da fatia, então uma fatia abandonada (lease vencido)
+         * é retomada por outra instância a partir do último bloco commitado.
+         * Chamado pelo RenewalJobService em background; cada bloco também soma no job, e um job cancelado faz o
+         * bloco seguinte ser desfeito e as fatias serem devolvidas. Na retomada de um job (resumed) uma rodada
+         * já concluída não recomeça.
+         */
+        public int triggerRenovation(UUID jobId, int maxSubscriptions, LocalDate dateToProccess, boolean resumed) {
+                log.info("Disparando renovação. Job: {}, Máximo: {}, Bloco: {}, Fatias: {}, Data: {}", jobId,
+                                maxSubscriptions, chunkSize, shardCount, dateToProccess);
+
+                renewalShardLeaseRepository.startRound(dateToProccess, shardCount, !resumed);
+                return runShards(new Run(dateToProccess, new AtomicInteger(maxSubscriptions), chunkSize, 0, jobId));
+        }
+
+        public String instanceId() {
+                return instanceId;
+        }
+
+        /*
+         * Usado pelo RenewalScheduler: processa as fatias do dia a uma taxa alvo (assinaturas por segundo) em vez
+         * de tudo de uma vez. A taxa é global (RenewalRateLimiter): todas as fatias em andamento, desta e das
+         * outras instâncias, dividem as mesmas janelas de um segundo, então a taxa total não depende de quantas
+         * fatias rodam ao mesmo tempo. Os blocos são uma fração da janela por worker, para que o outbox e o
+         * gateway recebam um fluxo contínuo e não rajadas.
+         * Quando a rodada anterior do dia terminou (todas as fatias DONE), uma nova recomeça do início: ela pega as
+         * assinaturas puladas por ainda terem transação aberta e as que venceram depois. Quem já foi renovado não
+         * volta na consulta, e cada varredura passa pelo mesmo limite de taxa; entre rodadas fica o intervalo do
+         * agendador (renewal.scheduler.poll-interval-ms).
+         */
+        public int renewAtRate(LocalDate date, double subscriptionsPerSecond) {
+                renewalShardLeaseRepository.startRound(date, shardCount, true);
+
+                return runShards(new Run(date, new AtomicInteger(Integer.MAX_VALUE),
+                                pacedChunk(subscriptionsPerSecond, parallelism, chunkSize), subscriptionsPerSecond,
+                                null));
+        }
+
+        // Com "parallelism" workers, uma instância sozinha já consegue preencher a janela de um segundo.
+        static int pacedChunk(double subscriptionsPerSecond, int parallelism, int maxChunk) {
+                int window = RenewalRateLimiter.permitsPerWindow(subscriptionsPerSecond);
+                int perWorker = (int) Math.ceil((double) window / parallelism);
+                return Math.max(1, Math.min(maxChunk, perWorker));
+        }
+
+        private int runShards(Run run) {
+                var total = new AtomicInteger();
+
+                try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        List<Future<?>> workers = new ArrayList<>();
+                        for (int i = 0; i < parallelism; i++) {
+                                workers.add(executor.submit(() -> runWorker(run, total)));
+                        }
+                        for (Future<?> worker : workers) {
+                                worker.get();
+                        }
+                } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Renovação interrompida", e);
+                } catch (ExecutionException e) {
+                        throw new IllegalStateException("Erro processando fatia da renovação", e.getCause());
+                }
+
+                log.info("Renovação disparada. Registros encontrados: {}", total.get());
+                return total.get();
+        }
+
+        public List<RenewalShardLease> progress(LocalDate date) {
+                return renewalShardLeaseRepository.findByRunDate(date);
+        }
+
+        private void runWorker(Run run, AtomicInteger total) {
+                while (run.budget().get() > 0) {
+                        var lease = renewalShardLeaseRepository.claimNext(run.date(), instanceId,
+                                        Duration.ofSeconds(leaseSeconds));
+                        if (lease.isEmpty()) {
+                                return;
+                        }
+                        try {
+                                total.addAndGet(processShard(run, lease.get()));
+                        } catch (ShardLeaseLostException e) {
+                                log.warn(e.getMessage());
+                        } catch (RenewalJobStoppedException e) {
+                                // O bloco foi desfeito, mas o lease continua nosso: devolve a fatia e encerra.
+                                log.info(e.getMessage());
+                                renewalShardLeaseRepository.release(lease.get(), instanceId);
+                                return;
+                        }
+                }
+        }
+
+        private int processShard(Run run, RenewalShardLease lease) {
+                var budget = run.budget();
+                var upperId = lease.toShard().upperId();
+                var cursor = lease.cursor();
+                int processed = 0;
+
+                while (true) {
+                        int reserved = reserve(budget, run.chunk());
+                        if (reserved == 0) {
+                                renewalShardLeaseRepository.release(lease, instanceId);
+                                return processed;
+                        }
+
+                        int granted = reserved;
+                        if (run.ratePerSecond() > 0) {
+                                try {
+                                        granted = renewalRateLimiter.acquire(run.date(), reserved,
+                                                        run.ratePerSecond());
+                                } catch (InterruptedException e) {
+                                        Thread.currentThread().interrupt();
+                                        budget.addAndGet(reserved);
+                                        renewalShardLeaseRepository.release(lease, instanceId);
+                                        return processed;
                                 }
+                                budget.addAndGet(reserved - granted);
+                        }
+                        int limit = granted;
+
+                        var current = cursor;
+                        var sample = Timer.start(meterRegistry);
+                        List<Subscription> chunk = transactionTemplate.execute(status -> {
+                                var subscriptions = processChunk(lease.runDate(), current, upperId, limit, run.jobId());
+                                var next = subscriptions.isEmpty() ? current
+                                                : RenewalCursor.after(subscriptions.get(subscriptions.size() - 1));
+                                if (!renewalShardLeaseRepository.advance(lease, instanceId, next,
+                                                subscriptions.size(), Duration.ofSeconds(leaseSeconds))) {
+                                        // Outra instância assumiu a fatia: a exceção desfaz o bloco.
+                                        throw new ShardLeaseLostException("Lease da fatia " + lease.shard()
+                                                        + " perdido. Bloco descartado.");
+                                }
+                                if (run.jobId() != null && renewalJobRepository.recordChunk(run.jobId(), instanceId,
+                                                subscriptions.size(), LocalDateTime.now()) == 0) {
+                                        throw new RenewalJobStoppedException("Job " + run.jobId()
+                                                        + " cancelado ou assumido por outra instância. Bloco descartado.");
+                                }
+                                return subscriptions;
                         });
-                });
+
+                        int size = chunk == null ? 0 : chunk.size();
+                        // Tempo de banco do bloco (consulta, insert em lote, outbox e commit).
+                        sample.stop(meterRegistry.timer("renewal.trigger.chunk"));
+                        meterRegistry.counter("payment.transactions.transitions", "status",
+                                        PaymentTransactionStatus.CREATED.name()).increment(size);
+                        budget.addAndGet(limit - size);
+                        processed += size;
+                        log.info("Bloco commitado. Fatia: {}, Registros no bloco: {}, Total da fatia: {}",
+                                        lease.shard(), size, processed);
+
+                        if (Thread.currentThread().isInterrupted()) {
+                                renewalShardLeaseRepository.release(lease, instanceId);
+                                return processed;
+                        }
+                        if (size < limit) {
+                                renewalShardLeaseRepository.complete(lease, instanceId);
+                                return processed;
+                        }
+                        cursor = RenewalCursor.after(chunk.get(size - 1));
+                }
+        }
+
+        // Reserva até "wanted" assinaturas do limite global da chamada.
+        private int reserve(AtomicInteger budget, int wanted) {
+                while (true) {
+                        int remaining = budget.get();
+                        int taken = Math.min(remaining, wanted);
+                        if (taken <= 0 || budget.compareAndSet(remaining, remaining - taken)) {
+                                return Math.max(taken, 0);
+                        }
+                }
+        }
+
+        private List<Subscription> processChunk(LocalDate dateToProccess, RenewalCursor cursor, UUID upperId,
+                        int limit, UUID jobId) {
+                var subscriptions = subscriptionRepository.findSubscriptionToProccessPayment(
+                                dateToProccess,
+                                cursor.expirationDate(),
+                                cursor.id(),
+                                upperId,
+                                limit);
+
+                // 1. Prepara as Transações com ids gerados na aplicação e insere o bloco via JDBC batch
+                var now = LocalDateTime.now();
+                var transactions = subscriptions.stream()
+                                .map(sub -> PaymentTransaction.builder()
+                                                .id(UUID.randomUUID())
+                                                .subscription(sub)
+                                                .status(PaymentTransactionStatus.CREATED.name())
+                                                .dataInicio(now)
+                                                .priceInCents(sub.getPriceInCents())
+                                                .renewalJobId(jobId)
+                                                .build())
+                                .toList();
+
+                paymentTransactionRepositiry.insertAll(transactions);
+
+                // 2. Prepara os Eventos (startedAt: data_inicio, para os UPDATEs tocarem só a partição dele)
+                long startedAt = now.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+                var events = transactions.stream()
+                                .map(transaction -> PaymentTransactionEvent.builder()
+                                                .subscriptionId(transaction.getSubscription().getId())
+                                                .transactionId(transaction.getId())
+                                                .priceInCents(transaction.getPriceInCents())
+                                                .startedAt(startedAt)
+                                                .build())
+                                .toList();
+
+                // 3. O PULO DO GATO: os eventos vão para o outbox na mesma transação do bloco;
+                // o OutboxRelay só publica o que foi commitado.
+                subscriptionRenewalProducer.sendRenewalStartBatch(events);
+
+                return subscriptions;
         }
-}
\ No newline at end of file
+}
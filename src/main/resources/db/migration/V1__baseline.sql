@@ -0,0 +1,44 @@
+-- Esquema inicial, equivalente ao que o ddl-auto=update gerava a partir das entidades.
+-- Bancos já existentes entram pelo baseline (spring.flyway.baseline-on-migrate) e pulam este script.
+
+CREATE TABLE users (
+    id    UUID PRIMARY KEY,
+    name  VARCHAR(255),
+    email VARCHAR(255) NOT NULL CONSTRAINT uk_users_email UNIQUE
+);
+
+CREATE TABLE subscriptions (
+    id                UUID PRIMARY KEY,
+    user_id           UUID,
+    plan              VARCHAR(255),
+    price_in_cents    INTEGER,
+    start_date        DATE,
+    expiration_date   DATE,
+    last_renewal_date DATE,
+    cancel_reason     VARCHAR(255),
+    status            VARCHAR(255) CHECK (status IN ('ATIVA', 'SUSPENSA', 'CANCELADA'))
+);
+
+CREATE TABLE payment_transactions (
+    id                     UUID PRIMARY KEY,
+    subscription_id        UUID NOT NULL REFERENCES subscriptions (id),
+    status                 VARCHAR(255),
+    data_inicio            TIMESTAMP(6),
+    data_finalizacao       TIMESTAMP(6),
+    price_in_cents         INTEGER,
+    cancellation_reason    VARCHAR(255),
+    rejected_payment_count INTEGER
+);
+
+CREATE TABLE outbox (
+    id           UUID PRIMARY KEY,
+    exchange     VARCHAR(255) NOT NULL,
+    routing_key  VARCHAR(255) NOT NULL,
+    content_type VARCHAR(255),
+    type_id      VARCHAR(255),
+    payload      BYTEA        NOT NULL,
+    delay_ms     BIGINT,
+    created_at   TIMESTAMP(6) NOT NULL
+);
+
+CREATE INDEX idx_outbox_created_at ON outbox (created_at);
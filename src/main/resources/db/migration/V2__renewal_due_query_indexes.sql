@@ -0,0 +1,17 @@
+-- Índices da consulta de vencimento (SubscriptionRepository.findSubscriptionToProccessPayment).
+-- CONCURRENTLY para não travar escrita em tabelas já grandes; por isso o script roda fora de transação
+-- (ver V2__renewal_due_query_indexes.sql.conf).
+
+-- Igualdade em expiration_date e status; o id no fim entrega as linhas já na ordem do keyset.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_subscriptions_expiration_status
+    ON subscriptions (expiration_date, status, id);
+
+-- Só as transações em aberto: o NOT EXISTS consulta um índice do tamanho do que está em andamento,
+-- não do histórico inteiro.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_transactions_open
+    ON payment_transactions (subscription_id)
+    WHERE data_finalizacao IS NULL;
+
+-- Verificação de assinatura vigente na criação (findFirstByUserIdAndExpirationDateAfter).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_subscriptions_user_expiration
+    ON subscriptions (user_id, expiration_date);
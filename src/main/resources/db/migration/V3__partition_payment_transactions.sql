@@ -0,0 +1,70 @@
+-- payment_transactions passa a ser particionada por mês de data_inicio.
+-- A chave primária precisa conter a chave de partição, por isso vira (id, data_inicio); o id continua único
+-- na prática porque é gerado pela aplicação (UUID).
+-- Os dados existentes são copiados para a nova tabela: em bancos grandes, rodar numa janela de manutenção.
+
+ALTER TABLE payment_transactions RENAME TO payment_transactions_legacy;
+ALTER INDEX IF EXISTS idx_payment_transactions_open RENAME TO idx_payment_transactions_legacy_open;
+
+CREATE TABLE payment_transactions (
+    id                     UUID         NOT NULL,
+    subscription_id        UUID         NOT NULL REFERENCES subscriptions (id),
+    status                 VARCHAR(255),
+    data_inicio            TIMESTAMP(6) NOT NULL,
+    data_finalizacao       TIMESTAMP(6),
+    price_in_cents         INTEGER,
+    cancellation_reason    VARCHAR(255),
+    rejected_payment_count INTEGER,
+    PRIMARY KEY (id, data_inicio)
+) PARTITION BY RANGE (data_inicio);
+
+-- Rede de segurança para linhas fora das partições mensais; a manutenção cria os meses com antecedência,
+-- então ela deve ficar vazia.
+CREATE TABLE payment_transactions_default PARTITION OF payment_transactions DEFAULT;
+
+CREATE INDEX idx_payment_transactions_open
+    ON payment_transactions (subscription_id)
+    WHERE data_finalizacao IS NULL;
+
+-- Cria (se não existir) a partição do mês que contém p_month.
+CREATE OR REPLACE FUNCTION ensure_payment_transactions_partition(p_month DATE) RETURNS VOID AS $$
+DECLARE
+    v_start DATE := date_trunc('month', p_month)::date;
+    v_name  TEXT := 'payment_transactions_' || to_char(v_start, '"y"YYYY"m"MM');
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF payment_transactions FOR VALUES FROM (%L) TO (%L)',
+                   v_name, v_start, (v_start + INTERVAL '1 month')::date);
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    v_month DATE;
+BEGIN
+    FOR v_month IN
+        SELECT generate_series(
+                       date_trunc('month', COALESCE((SELECT min(data_inicio) FROM payment_transactions_legacy), now())),
+                       date_trunc('month', now()) + INTERVAL '3 months',
+                       INTERVAL '1 month')::date
+    LOOP
+        PERFORM ensure_payment_transactions_partition(v_month);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO payment_transactions (id, subscription_id, status, data_inicio, data_finalizacao, price_in_cents,
+                                  cancellation_reason, rejected_payment_count)
+SELECT id, subscription_id, status, COALESCE(data_inicio, now()), data_finalizacao, price_in_cents,
+       cancellation_reason, rejected_payment_count
+FROM payment_transactions_legacy;
+
+DROP TABLE payment_transactions_legacy;
+
+-- Armazenamento frio: transações finalizadas antigas, fora das consultas do fluxo de renovação.
+CREATE TABLE payment_transactions_archive (
+    LIKE payment_transactions INCLUDING DEFAULTS,
+    archived_at TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, data_inicio)
+);
+
+CREATE INDEX idx_payment_transactions_archive_subscription ON payment_transactions_archive (subscription_id);
@@ -0,0 +1,15 @@
+-- Fatias da renovação de cada dia. Cada instância reivindica fatias livres (ou com lease vencido) com
+-- FOR UPDATE SKIP LOCKED e grava o keyset commitado junto com cada bloco, o que permite retomar a fatia.
+CREATE TABLE renewal_shard_leases (
+    run_date             DATE         NOT NULL,
+    shard                INTEGER      NOT NULL,
+    shard_count          INTEGER      NOT NULL,
+    status               VARCHAR(16)  NOT NULL,
+    owner                VARCHAR(64),
+    lease_until          TIMESTAMP(6),
+    last_expiration_date DATE,
+    last_id              UUID,
+    processed            INTEGER      NOT NULL DEFAULT 0,
+    updated_at           TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (run_date, shard)
+);
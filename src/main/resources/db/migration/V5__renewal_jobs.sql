@@ -0,0 +1,25 @@
+-- Jobs assíncronos de renovação (POST /triggers/renewal). O keyset de cada fatia já fica em
+-- renewal_shard_leases; aqui ficam o limite pedido, o total encontrado e o heartbeat de quem executa,
+-- usado para retomar jobs de uma instância que caiu.
+CREATE TABLE renewal_jobs (
+    id                UUID PRIMARY KEY,
+    run_date          DATE         NOT NULL,
+    max_subscriptions INTEGER      NOT NULL,
+    status            VARCHAR(16)  NOT NULL CHECK (status IN ('RUNNING', 'COMPLETED', 'CANCELLED', 'FAILED')),
+    found             INTEGER      NOT NULL DEFAULT 0,
+    owner             VARCHAR(64),
+    heartbeat_at      TIMESTAMP(6),
+    error_message     VARCHAR(1024),
+    created_at        TIMESTAMP(6) NOT NULL,
+    finished_at       TIMESTAMP(6)
+);
+
+CREATE INDEX idx_renewal_jobs_running ON renewal_jobs (heartbeat_at) WHERE status = 'RUNNING';
+
+-- Job que criou a transação, para o acompanhamento por status. Nulo para a renovação agendada.
+ALTER TABLE payment_transactions ADD COLUMN renewal_job_id UUID;
+ALTER TABLE payment_transactions_archive ADD COLUMN renewal_job_id UUID;
+
+CREATE INDEX idx_payment_transactions_job
+    ON payment_transactions (renewal_job_id)
+    WHERE renewal_job_id IS NOT NULL;
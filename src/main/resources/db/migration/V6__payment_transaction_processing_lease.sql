@@ -0,0 +1,4 @@
+-- Lease da reivindicação (status PROCESSING): até quando o consumidor que venceu a transição é o dono da
+-- tentativa. Depois disso uma redelivery pode reivindicar a transação de novo (consumidor caiu no meio).
+-- Nulo fora de PROCESSING; transações PROCESSING anteriores a esta migration contam como lease vencido.
+ALTER TABLE payment_transactions ADD COLUMN processing_until TIMESTAMP(6);
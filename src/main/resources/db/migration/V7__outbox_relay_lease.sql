@@ -0,0 +1,4 @@
+-- Lease do relay sobre as linhas do outbox: o lote é reivindicado numa transação curta (locked_until) e
+-- publicado fora dela, sem segurar travas nem conexão durante a espera pelos publisher confirms.
+-- Linhas com lease vencido (relay caiu no meio) voltam a ser elegíveis.
+ALTER TABLE outbox ADD COLUMN locked_until TIMESTAMP(6);
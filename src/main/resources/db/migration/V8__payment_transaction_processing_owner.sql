@@ -0,0 +1,7 @@
+-- Dono da reivindicação (status PROCESSING): token gerado a cada claim. As gravações de resultado exigem o
+-- mesmo token, então um consumidor cujo lease venceu e foi reivindicado por outro não sobrescreve o resultado
+-- do novo dono. Nulo fora de PROCESSING; as transações já em PROCESSING recebem um token para que o callback
+-- do gateway ainda consiga liquidá-las.
+ALTER TABLE payment_transactions ADD COLUMN processing_owner UUID;
+
+UPDATE payment_transactions SET processing_owner = gen_random_uuid() WHERE status = 'PROCESSING';
@@ -0,0 +1,11 @@
+-- Um job RUNNING por data: jobs da mesma data dividem as linhas de renewal_shard_leases, e o segundo
+-- terminaria na hora como COMPLETED sem ter encontrado nada. Duplicatas já existentes ficam com o job mais
+-- antigo, que é o dono do progresso das fatias.
+UPDATE renewal_jobs j
+SET status = 'CANCELLED', finished_at = now(), error_message = 'Outro job RUNNING para a mesma data'
+WHERE j.status = 'RUNNING'
+  AND EXISTS (SELECT 1 FROM renewal_jobs o
+              WHERE o.run_date = j.run_date AND o.status = 'RUNNING'
+                AND (o.created_at, o.id) < (j.created_at, j.id));
+
+CREATE UNIQUE INDEX uq_renewal_jobs_running_date ON renewal_jobs (run_date) WHERE status = 'RUNNING';
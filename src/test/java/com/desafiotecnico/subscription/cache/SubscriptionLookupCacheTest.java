@@ -0,0 +1,98 @@
+package com.desafiotecnico.subscription.cache;
+
+import com.desafiotecnico.subscription.domain.Subscription;
+import com.desafiotecnico.subscription.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionLookupCacheTest {
+
+        @Mock
+        private SubscriptionRepository subscriptionRepository;
+
+        @Mock
+        private StringRedisTemplate redisTemplate;
+
+        @Mock
+        private ValueOperations<String, String> valueOperations;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private SubscriptionLookupCache cache;
+
+        @BeforeEach
+        void setUp() {
+                lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+                cache = new SubscriptionLookupCache(subscriptionRepository, redisTemplate, meterRegistry, 1000, 60,
+                                86400);
+        }
+
+        @Test
+        void shouldServeRepeatedActiveSubscriptionLookupsFromNearCache() {
+                UUID userId = UUID.randomUUID();
+                LocalDate today = LocalDate.now();
+                when(subscriptionRepository.findFirstByUserIdAndExpirationDateAfter(userId, today))
+                                .thenReturn(Optional.of(Subscription.builder()
+                                                .userId(userId)
+                                                .expirationDate(today.plusDays(10))
+                                                .build()));
+
+                cache.activeSubscriptionExpiration(userId, today);
+                cache.activeSubscriptionExpiration(userId, today);
+
+                verify(subscriptionRepository, times(1)).findFirstByUserIdAndExpirationDateAfter(userId, today);
+                assertEquals(0.5, meterRegistry.get("subscription.cache.hit.ratio").tag("cache", "active-subscriptions")
+                                .gauge().value());
+        }
+
+        @Test
+        void shouldNotCacheMissingActiveSubscription() {
+                UUID userId = UUID.randomUUID();
+                LocalDate today = LocalDate.now();
+                when(subscriptionRepository.findFirstByUserIdAndExpirationDateAfter(userId, today))
+                                .thenReturn(Optional.empty());
+
+                assertTrue(cache.activeSubscriptionExpiration(userId, today).isEmpty());
+                assertTrue(cache.activeSubscriptionExpiration(userId, today).isEmpty());
+
+                verify(subscriptionRepository, times(2)).findFirstByUserIdAndExpirationDateAfter(userId, today);
+                verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        }
+
+        @Test
+        void shouldReloadActiveSubscriptionAfterEviction() {
+                UUID userId = UUID.randomUUID();
+                LocalDate today = LocalDate.now();
+                when(subscriptionRepository.findFirstByUserIdAndExpirationDateAfter(userId, today))
+                                .thenReturn(Optional.of(Subscription.builder()
+                                                .userId(userId)
+                                                .expirationDate(today.plusDays(10))
+                                                .build()));
+
+                assertEquals(today.plusDays(10), cache.activeSubscriptionExpiration(userId, today).orElseThrow());
+                cache.activeSubscriptionExpiration(userId, today);
+                cache.evictActiveSubscription(userId);
+                cache.activeSubscriptionExpiration(userId, today);
+
+                verify(subscriptionRepository, times(2)).findFirstByUserIdAndExpirationDateAfter(userId, today);
+                verify(redisTemplate).delete("cache:active-subscriptions:" + userId);
+        }
+}
@@ -0,0 +1,54 @@
+package com.desafiotecnico.subscription.codec;
+
+import com.desafiotecnico.subscription.config.GeneralConfigs;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageCodecTest {
+
+        private final PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                        .subscriptionId(UUID.randomUUID())
+                        .transactionId(UUID.randomUUID())
+                        .priceInCents(1990)
+                        .rejectedPaymentCount(1)
+                        .firstAttemptAt(System.currentTimeMillis())
+                        .dueAt(System.currentTimeMillis())
+                        .build();
+
+        @Test
+        void smileMessagesAreSmallerAndRoundTrip() {
+                var json = new GeneralConfigs().jsonMessageConverter(GeneralConfigs.CODEC_JSON)
+                                .toMessage(event, new MessageProperties());
+                var smile = new GeneralConfigs().jsonMessageConverter(GeneralConfigs.CODEC_SMILE)
+                                .toMessage(event, new MessageProperties());
+
+                assertEquals(SmileMessageConverter.CONTENT_TYPE, smile.getMessageProperties().getContentType());
+                assertEquals("renewal-start", smile.getMessageProperties().getHeaders().get("__TypeId__"));
+                assertTrue(smile.getBody().length < json.getBody().length,
+                                "smile " + smile.getBody().length + " bytes, json " + json.getBody().length + " bytes");
+
+                var reader = new GeneralConfigs().jsonMessageConverter(GeneralConfigs.CODEC_JSON);
+                assertEquals(event, reader.fromMessage(smile));
+        }
+
+        @Test
+        void smileInstanceStillReadsJsonMessagesDuringRollout() {
+                var legacy = new GeneralConfigs().jsonMessageConverter(GeneralConfigs.CODEC_JSON)
+                                .toMessage(SubscriptionCancelEvent.builder()
+                                                .subscriptionId(UUID.randomUUID())
+                                                .reason("recusado")
+                                                .build(), new MessageProperties());
+
+                var reader = new GeneralConfigs().jsonMessageConverter(GeneralConfigs.CODEC_SMILE);
+                var decoded = (SubscriptionCancelEvent) reader.fromMessage(legacy);
+
+                assertEquals("recusado", decoded.getReason());
+        }
+}
@@ -0,0 +1,87 @@
+package com.desafiotecnico.subscription.consumers;
+
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.service.SubscriptionService;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionCancelConsumerTest {
+
+        @Mock
+        private SubscriptionService subscriptionService;
+
+        @Mock
+        private Channel channel;
+
+        @InjectMocks
+        private SubscriptionCancelConsumer consumer;
+
+        @Test
+        void shouldAckWholeBatchInOneCall() throws Exception {
+                consumer.consumeSubscriptionCancelBatch(List.of(message(1), message(2)), channel);
+
+                verify(subscriptionService, times(1)).cancelSubscriptions(anyList());
+                verify(channel).basicAck(2, true);
+                verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        }
+
+        @Test
+        void shouldIsolateFailingEventAndAckTheRest() throws Exception {
+                // Arrange
+                var healthy = message(1);
+                var poison = message(2);
+                when(subscriptionService.cancelSubscriptions(anyList())).thenAnswer(invocation -> {
+                        List<SubscriptionCancelEvent> events = invocation.getArgument(0);
+                        if (events.contains(poison.getPayload())) {
+                                throw new IllegalStateException("violação de constraint");
+                        }
+                        return events.size();
+                });
+
+                // Act
+                consumer.consumeSubscriptionCancelBatch(List.of(healthy, poison), channel);
+
+                // Assert: o evento problemático é reagendado com atraso e nada volta para a fila
+                verify(subscriptionService).cancelSubscriptions(List.of(healthy.getPayload()));
+                verify(subscriptionService).retryFailedCancel(poison.getPayload());
+                verify(channel).basicAck(2, true);
+                verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        }
+
+        @Test
+        void shouldRequeueOnlyEventsThatCouldNotBeRescheduled() throws Exception {
+                when(subscriptionService.cancelSubscriptions(anyList())).thenThrow(new IllegalStateException("DB fora"));
+                doThrow(new IllegalStateException("DB fora")).when(subscriptionService).retryFailedCancel(any());
+
+                consumer.consumeSubscriptionCancelBatch(List.of(message(1), message(2)), channel);
+
+                verify(channel).basicNack(1, false, true);
+                verify(channel).basicNack(2, false, true);
+                verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        }
+
+        private Message<SubscriptionCancelEvent> message(long tag) {
+                return MessageBuilder.withPayload(SubscriptionCancelEvent.builder()
+                                .subscriptionId(UUID.randomUUID())
+                                .reason("recusado")
+                                .build())
+                                .setHeader(AmqpHeaders.DELIVERY_TAG, tag)
+                                .build();
+        }
+}
@@ -0,0 +1,109 @@
+package com.desafiotecnico.subscription.consumers;
+
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.service.PaymentBatchResult;
+import com.desafiotecnico.subscription.service.PaymentTransactionService;
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionRenewalBatchConsumerTest {
+
+        @Mock
+        private PaymentTransactionService paymentTransactionService;
+
+        @Spy
+        private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        @Mock
+        private Channel channel;
+
+        @InjectMocks
+        private SubscriptionRenewalBatchConsumer consumer;
+
+        @Test
+        void shouldAckAndNackEachDeliveryOfAMixedBatch() throws Exception {
+                // Arrange
+                var ok = message(1, event(UUID.randomUUID(), 0));
+                var retry = message(2, event(UUID.randomUUID(), 0));
+                var reject = message(3, event(UUID.randomUUID(), 0));
+                var duplicate = message(4, ok.getPayload().toBuilder().build());
+                var last = message(5, event(UUID.randomUUID(), 0));
+                when(paymentTransactionService.startPaymentTransactions(
+                                List.of(ok.getPayload(), retry.getPayload(), reject.getPayload(), last.getPayload())))
+                                .thenReturn(new PaymentBatchResult(List.of(reject.getPayload()),
+                                                List.of(retry.getPayload())));
+
+                // Act
+                consumer.consumePaymentTransactionStartBatch(List.of(ok, retry, reject, duplicate, last), channel);
+
+                // Assert: a cópia é confirmada junto com as processadas, e só as próprias mensagens são rejeitadas
+                verify(channel).basicNack(2, false, true);
+                verify(channel).basicNack(3, false, false);
+                verify(channel).basicAck(5, true);
+                verifyNoMoreInteractions(channel);
+        }
+
+        @Test
+        void shouldProcessOnlyTheLatestAttemptOfARepeatedTransaction() throws Exception {
+                // Arrange
+                var transactionId = UUID.randomUUID();
+                var stale = message(7, event(transactionId, 0));
+                var current = message(8, event(transactionId, 1));
+                when(paymentTransactionService.startPaymentTransactions(List.of(current.getPayload())))
+                                .thenReturn(PaymentBatchResult.requeued(List.of(current.getPayload())));
+
+                // Act
+                consumer.consumePaymentTransactionStartBatch(List.of(stale, current), channel);
+
+                // Assert
+                verify(channel).basicNack(8, false, true);
+                verify(channel).basicAck(7, true);
+                verify(channel, never()).basicNack(eq(7L), anyBoolean(), anyBoolean());
+        }
+
+        @Test
+        void shouldRequeueWholeBatchWhenServiceFails() throws Exception {
+                when(paymentTransactionService.startPaymentTransactions(anyList()))
+                                .thenThrow(new IllegalStateException("Redis fora"));
+
+                var first = message(1, event(UUID.randomUUID(), 0));
+                var second = message(2, event(UUID.randomUUID(), 0));
+
+                consumer.consumePaymentTransactionStartBatch(List.of(first, second), channel);
+
+                verify(channel).basicNack(2, true, true);
+                verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        }
+
+        private PaymentTransactionEvent event(UUID transactionId, int rejectedPaymentCount) {
+                return PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1990)
+                                .rejectedPaymentCount(rejectedPaymentCount)
+                                .build();
+        }
+
+        private Message<PaymentTransactionEvent> message(long tag, PaymentTransactionEvent event) {
+                return MessageBuilder.withPayload(event)
+                                .setHeader(AmqpHeaders.DELIVERY_TAG, tag)
+                                .build();
+        }
+}
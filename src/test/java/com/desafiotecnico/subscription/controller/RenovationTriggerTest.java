@@ -2,8 +2,10 @@ package com.desafiotecnico.subscription.controller;
 
 import com.desafiotecnico.subscription.domain.Plan;
 import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
 import com.desafiotecnico.subscription.domain.Subscription;
 import com.desafiotecnico.subscription.dto.request.SubscriptionRenewalTrigger;
+import com.desafiotecnico.subscription.dto.response.RenewalJobResponse;
 import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
 import com.desafiotecnico.subscription.repository.SubscriptionRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -24,6 +26,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -71,10 +75,15 @@ public class RenovationTriggerTest {
                                 .build();
 
                 // When
-                mockMvc.perform(post("/triggers/renewal")
+                var accepted = mockMvc.perform(post("/triggers/renewal")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .content(objectMapper.writeValueAsString(request)))
-                                .andExpect(status().isOk());
+                                .andExpect(status().isAccepted())
+                                .andReturn();
+
+                var job = objectMapper.readValue(accepted.getResponse().getContentAsString(),
+                                RenewalJobResponse.class);
+                awaitJob(job.getId());
 
                 // Then
                 var transaction = renewalTransactionRepository
@@ -87,7 +96,45 @@ public class RenovationTriggerTest {
                 assertEquals(1990, transaction.getPriceInCents());
 
                 verify(renovationProducer, timeout(1000).atLeastOnce())
-                                .sendRenewalStart(Mockito
-                                                .any(com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent.class));
+                                .sendRenewalStartBatch(Mockito.anyList());
+        }
+
+        @Test
+        void cancelRenewalJob_ReturnsConflictWhenJobAlreadyFinished() throws Exception {
+                // Given a finished job (nothing due on the date)
+                var request = SubscriptionRenewalTrigger.builder()
+                                .maxSubscriptions(10)
+                                .dateToProcess(LocalDate.now().plusYears(50))
+                                .build();
+                var accepted = mockMvc.perform(post("/triggers/renewal")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(request)))
+                                .andExpect(status().isAccepted())
+                                .andReturn();
+                var job = objectMapper.readValue(accepted.getResponse().getContentAsString(),
+                                RenewalJobResponse.class);
+                awaitJob(job.getId());
+
+                // When / Then
+                mockMvc.perform(delete("/triggers/renewal/jobs/" + job.getId()))
+                                .andExpect(status().isConflict());
+                mockMvc.perform(delete("/triggers/renewal/jobs/" + UUID.randomUUID()))
+                                .andExpect(status().isNotFound());
+        }
+
+        private RenewalJobResponse awaitJob(UUID jobId) throws Exception {
+                for (int i = 0; i < 100; i++) {
+                        var result = mockMvc.perform(get("/triggers/renewal/jobs/" + jobId))
+                                        .andExpect(status().isOk())
+                                        .andReturn();
+                        var job = objectMapper.readValue(result.getResponse().getContentAsString(),
+                                        RenewalJobResponse.class);
+                        if (job.getStatus() != RenewalJobStatus.RUNNING) {
+                                assertEquals(RenewalJobStatus.COMPLETED, job.getStatus());
+                                return job;
+                        }
+                        Thread.sleep(100);
+                }
+                throw new AssertionError("Job " + jobId + " não terminou");
         }
 }
@@ -0,0 +1,49 @@
+package com.desafiotecnico.subscription.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RenewalShardTest {
+
+        private static final LocalDate DATE = LocalDate.of(2026, 10, 18);
+
+        // Ordem do Postgres para uuid: bytes sem sinal.
+        private static int compareUnsigned(UUID a, UUID b) {
+                int msb = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+                return msb != 0 ? msb : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
+
+        @Test
+        void shouldCoverWholeUuidSpaceWithContiguousRanges() {
+                int count = 7;
+                assertEquals(RenewalCursor.start(DATE), new RenewalShard(0, count).start(DATE));
+                assertEquals(new UUID(-1L, -1L), new RenewalShard(count - 1, count).upperId());
+
+                for (int i = 0; i < count - 1; i++) {
+                        // O cursor (exclusivo) da próxima fatia é exatamente o último id desta.
+                        assertEquals(new RenewalShard(i, count).upperId(), new RenewalShard(i + 1, count).start(DATE).id());
+                }
+        }
+
+        @Test
+        void shouldPlaceEveryIdInExactlyOneShard() {
+                int count = 16;
+                for (int n = 0; n < 1000; n++) {
+                        UUID id = UUID.randomUUID();
+                        int owners = 0;
+                        for (int i = 0; i < count; i++) {
+                                var shard = new RenewalShard(i, count);
+                                if (compareUnsigned(id, shard.start(DATE).id()) > 0
+                                                && compareUnsigned(id, shard.upperId()) <= 0) {
+                                        owners++;
+                                }
+                        }
+                        assertTrue(owners == 1, "id " + id + " em " + owners + " fatias");
+                }
+        }
+}
@@ -0,0 +1,49 @@
+package com.desafiotecnico.subscription.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+        @Test
+        void shouldRejectWhenLimitIsReached() throws Exception {
+                var limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1000, 0.5);
+
+                assertTrue(limiter.tryAcquire(0));
+                assertTrue(limiter.tryAcquire(0));
+                assertFalse(limiter.tryAcquire(10));
+                assertEquals(2, limiter.getInFlight());
+        }
+
+        @Test
+        void shouldIncreaseLimitOnFastResponsesUnderLoad() throws Exception {
+                var limiter = new AdaptiveConcurrencyLimiter(4, 1, 10, 1000, 0.5);
+
+                limiter.tryAcquire(0);
+                limiter.tryAcquire(0);
+                limiter.onSuccess(50);
+
+                assertEquals(5, limiter.getLimit());
+        }
+
+        @Test
+        void shouldDecreaseLimitOnErrorsAndSlowResponsesRespectingMinimum() throws Exception {
+                var limiter = new AdaptiveConcurrencyLimiter(8, 2, 10, 1000, 0.5);
+
+                limiter.tryAcquire(0);
+                limiter.onDropped();
+                assertEquals(4, limiter.getLimit());
+
+                limiter.tryAcquire(0);
+                limiter.onSuccess(5000);
+                assertEquals(2, limiter.getLimit());
+
+                limiter.tryAcquire(0);
+                limiter.onDropped();
+                assertEquals(2, limiter.getLimit());
+                assertEquals(0, limiter.getInFlight());
+        }
+}
@@ -0,0 +1,48 @@
+package com.desafiotecnico.subscription.gateway;
+
+import com.desafiotecnico.subscription.dto.request.PaymentCallbackRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallbackSignatureTest {
+
+        private final CallbackSignature callbackSignature = new CallbackSignature("segredo");
+
+        @Test
+        void shouldAcceptOnlyCallbacksSignedWithTheSharedSecret() {
+                var request = callback(true);
+                String signature = callbackSignature.sign(request);
+
+                assertTrue(callbackSignature.verify(request, signature));
+                assertFalse(callbackSignature.verify(request, null));
+                assertFalse(callbackSignature.verify(request, new CallbackSignature("outro").sign(request)));
+        }
+
+        @Test
+        void shouldRejectTamperedResult() {
+                var declined = callback(false);
+                String signature = callbackSignature.sign(declined);
+
+                declined.setSuccess(true);
+
+                assertFalse(callbackSignature.verify(declined, signature));
+        }
+
+        @Test
+        void shouldRejectEverythingWithoutConfiguredSecret() {
+                var request = callback(true);
+
+                assertFalse(new CallbackSignature("").verify(request, callbackSignature.sign(request)));
+        }
+
+        private PaymentCallbackRequest callback(boolean success) {
+                return PaymentCallbackRequest.builder()
+                                .transactionId(UUID.randomUUID())
+                                .success(success)
+                                .build();
+        }
+}
@@ -0,0 +1,130 @@
+package com.desafiotecnico.subscription.gateway;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.desafiotecnico.subscription.gateway.CircuitBreaker.NOT_PERMITTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class CircuitBreakerTest {
+
+        private final AtomicLong now = new AtomicLong(0);
+
+        private final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 4, 4, 1000, 2, now::get);
+
+        @Test
+        void shouldOpenWhenFailureRateReachesThreshold() {
+                record(false, true, false, true);
+
+                assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+                assertEquals(NOT_PERMITTED, circuitBreaker.tryAcquirePermission());
+                assertEquals(1000, circuitBreaker.remainingOpenMillis());
+
+                now.set(400);
+                assertEquals(600, circuitBreaker.remainingOpenMillis());
+        }
+
+        @Test
+        void shouldStayClosedBeforeMinimumCalls() {
+                record(true, true, true);
+
+                assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        }
+
+        @Test
+        void shouldCloseAfterSuccessfulTrialCallsInHalfOpen() {
+                record(true, true, true, true);
+                now.set(1000);
+
+                long first = acquire();
+                assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+                long second = acquire();
+                assertEquals(NOT_PERMITTED, circuitBreaker.tryAcquirePermission());
+
+                circuitBreaker.onSuccess(first);
+                circuitBreaker.onSuccess(second);
+
+                assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        }
+
+        @Test
+        void shouldReopenWhenTrialCallFails() {
+                record(true, true, true, true);
+                now.set(1500);
+
+                circuitBreaker.onFailure(acquire());
+
+                assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+                assertEquals(1000, circuitBreaker.remainingOpenMillis());
+        }
+
+        @Test
+        void shouldFreeTrialSlotWhenPermissionIsReleased() {
+                record(true, true, true, true);
+                now.set(1000);
+
+                long first = acquire();
+                acquire();
+                assertEquals(NOT_PERMITTED, circuitBreaker.tryAcquirePermission());
+
+                circuitBreaker.releasePermission(first);
+
+                assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+                acquire();
+        }
+
+        @Test
+        void shouldIgnoreTrialCallsFromAnEarlierHalfOpen() {
+                record(true, true, true, true);
+                now.set(1000);
+
+                long stale = acquire();
+                long failed = acquire();
+                circuitBreaker.onFailure(failed);
+                now.set(2000);
+
+                long first = acquire();
+                long second = acquire();
+                circuitBreaker.releasePermission(stale);
+                circuitBreaker.onSuccess(stale);
+
+                assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+                assertEquals(NOT_PERMITTED, circuitBreaker.tryAcquirePermission());
+
+                circuitBreaker.onSuccess(first);
+                circuitBreaker.onSuccess(second);
+
+                assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        }
+
+        @Test
+        void shouldIgnoreFailureOfCallAdmittedBeforeTheCircuitOpened() {
+                long stale = acquire();
+                record(true, true, true, true);
+                now.set(1000);
+
+                acquire();
+                circuitBreaker.onFailure(stale);
+
+                assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        }
+
+        private long acquire() {
+                long permission = circuitBreaker.tryAcquirePermission();
+                assertNotEquals(NOT_PERMITTED, permission);
+                return permission;
+        }
+
+        private void record(boolean... failures) {
+                for (boolean failure : failures) {
+                        long permission = acquire();
+                        if (failure) {
+                                circuitBreaker.onFailure(permission);
+                        } else {
+                                circuitBreaker.onSuccess(permission);
+                        }
+                }
+        }
+}
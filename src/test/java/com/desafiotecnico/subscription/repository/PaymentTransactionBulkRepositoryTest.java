@@ -0,0 +1,175 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.PaymentTransaction;
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.domain.Plan;
+import com.desafiotecnico.subscription.domain.Subscription;
+import com.desafiotecnico.subscription.domain.SubscriptionStatus;
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.StartRange;
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.Transition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Escritas em lote de payment_transactions (JDBC batch e UPDATE ... RETURNING) contra o Postgres de verdade,
+ * incluindo a faixa de data_inicio que poda as partições (StartRange).
+ */
+@SpringBootTest
+public class PaymentTransactionBulkRepositoryTest {
+
+        @Autowired
+        private PaymentTransactionRepository paymentTransactionRepository;
+
+        @Autowired
+        private SubscriptionRepository subscriptionRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private Subscription subscription;
+        private LocalDateTime dataInicio;
+        private List<UUID> ids;
+
+        @BeforeEach
+        void setUp() {
+                subscription = subscriptionRepository.save(Subscription.builder()
+                                .userId(UUID.randomUUID())
+                                .plan(Plan.BASICO.getName())
+                                .priceInCents(Plan.BASICO.getPriceInCents())
+                                .status(SubscriptionStatus.ATIVA)
+                                .startDate(LocalDate.now())
+                                .expirationDate(LocalDate.now().plusMonths(1))
+                                .build());
+                // Com microssegundos, como o LocalDateTime.now() do TriggersService
+                dataInicio = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).plusNanos(123_456_000);
+                ids = IntStream.range(0, 3).mapToObj(i -> UUID.randomUUID()).toList();
+
+                paymentTransactionRepository.insertAll(ids.stream()
+                                .map(id -> PaymentTransaction.builder()
+                                                .id(id)
+                                                .subscription(subscription)
+                                                .status(PaymentTransactionStatus.CREATED.name())
+                                                .dataInicio(dataInicio)
+                                                .priceInCents(subscription.getPriceInCents())
+                                                .build())
+                                .toList());
+        }
+
+        @AfterEach
+        void tearDown() {
+                jdbcTemplate.update("DELETE FROM payment_transactions WHERE subscription_id = ?", subscription.getId());
+                subscriptionRepository.deleteById(subscription.getId());
+        }
+
+        @Test
+        void insertAllShouldWriteEveryTransaction() {
+                assertEquals(Map.of(PaymentTransactionStatus.CREATED.name(), 3L), statusCounts());
+        }
+
+        @Test
+        void claimAllShouldOnlyMatchWithinTheStartRange() {
+                var now = LocalDateTime.now();
+                var owner = UUID.randomUUID();
+
+                var elsewhere = StartRange.of(startedAt() + 1_000);
+                assertTrue(paymentTransactionRepository.claimAll(ids, elsewhere, PaymentTransactionStatus.CLAIMABLE,
+                                now, now.plusSeconds(60), owner).isEmpty());
+
+                var claimed = paymentTransactionRepository.claimAll(ids, StartRange.of(startedAt()),
+                                PaymentTransactionStatus.CLAIMABLE, now, now.plusSeconds(60), owner);
+                assertEquals(Set.copyOf(ids), Set.copyOf(claimed));
+        }
+
+        @Test
+        void claimAllShouldSkipLiveLeasesAndReclaimExpiredOnes() {
+                var now = LocalDateTime.now();
+                var started = StartRange.of(startedAt());
+                paymentTransactionRepository.claimAll(ids, started, PaymentTransactionStatus.CLAIMABLE, now,
+                                now.plusSeconds(60), UUID.randomUUID());
+
+                var other = UUID.randomUUID();
+                assertTrue(paymentTransactionRepository.claimAll(ids, started, PaymentTransactionStatus.CLAIMABLE,
+                                now, now.plusSeconds(60), other).isEmpty());
+
+                // O lease da primeira venceu sem resultado
+                jdbcTemplate.update("UPDATE payment_transactions SET processing_until = ? WHERE id = ?",
+                                now.minusSeconds(1), ids.get(0));
+                assertEquals(List.of(ids.get(0)), paymentTransactionRepository.claimAll(ids, started,
+                                PaymentTransactionStatus.CLAIMABLE, now, now.plusSeconds(60), other));
+                assertEquals(other, row(ids.get(0)).get("processing_owner"));
+        }
+
+        @Test
+        void transitionAllShouldOnlyApplyForTheClaimOwner() {
+                var now = LocalDateTime.now();
+                var started = StartRange.of(startedAt());
+                var owner = UUID.randomUUID();
+                paymentTransactionRepository.claimAll(ids, started, PaymentTransactionStatus.CLAIMABLE, now,
+                                now.plusSeconds(60), owner);
+
+                var won = paymentTransactionRepository.transitionAll(List.of(
+                                new Transition(ids.get(0), started, PaymentTransactionStatus.APPROVED.name(), 0, null,
+                                                now),
+                                new Transition(ids.get(1), started, PaymentTransactionStatus.PENDING_RETRY.name(), 1,
+                                                null, null)),
+                                owner);
+                var stale = paymentTransactionRepository.transitionAll(List.of(
+                                new Transition(ids.get(2), started, PaymentTransactionStatus.ABORTED.name(), 0,
+                                                "timeout", now)),
+                                UUID.randomUUID());
+
+                assertArrayEquals(new boolean[] { true, true }, won);
+                assertArrayEquals(new boolean[] { false }, stale);
+
+                var approved = row(ids.get(0));
+                assertEquals(PaymentTransactionStatus.APPROVED.name(), approved.get("status"));
+                assertNotNull(approved.get("data_finalizacao"));
+                assertNull(approved.get("processing_owner"));
+                var retry = row(ids.get(1));
+                assertEquals(PaymentTransactionStatus.PENDING_RETRY.name(), retry.get("status"));
+                assertEquals(1, retry.get("rejected_payment_count"));
+                assertNull(retry.get("data_finalizacao"));
+                assertEquals(PaymentTransactionStatus.PROCESSING.name(), row(ids.get(2)).get("status"));
+        }
+
+        private long startedAt() {
+                return dataInicio.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        private Map<String, Object> row(UUID id) {
+                return jdbcTemplate.queryForMap("SELECT * FROM payment_transactions WHERE id = ?", id);
+        }
+
+        private Map<String, Long> statusCounts() {
+                return jdbcTemplate.query("SELECT status, count(*) FROM payment_transactions " +
+                                "WHERE subscription_id = ? GROUP BY status",
+                                rs -> {
+                                        Map<String, Long> counts = new HashMap<>();
+                                        while (rs.next()) {
+                                                counts.put(rs.getString(1), rs.getLong(2));
+                                        }
+                                        return counts;
+                                }, subscription.getId());
+        }
+}
@@ -0,0 +1,63 @@
+package com.desafiotecnico.subscription.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Garante que a consulta de vencimento continua usando os índices da migration V2.
+ * Com poucos dados o planner prefere seq scan de qualquer forma, então o teste desliga o seq scan na
+ * transação: se ainda assim aparecer um Seq Scan, não existe índice que atenda a consulta.
+ * O texto é o mesmo do @Query (SubscriptionRepository.DUE_QUERY), com os parâmetros de uma fatia real.
+ */
+@SpringBootTest
+public class RenewalDueQueryPlanTest {
+
+        // Índices de cada partição criados a partir do índice parcial idx_payment_transactions_open (V3).
+        private static final String OPEN_TRANSACTIONS_PARTITION_INDEXES = "SELECT c.relname FROM pg_inherits i " +
+                        "JOIN pg_class c ON c.oid = i.inhrelid " +
+                        "WHERE i.inhparent = 'idx_payment_transactions_open'::regclass";
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Test
+        void dueQueryShouldUseIndexes() {
+                var date = LocalDate.of(2030, 1, 10);
+                var params = new MapSqlParameterSource()
+                                .addValue("date", date)
+                                .addValue("lastExpirationDate", date)
+                                .addValue("lastId", new UUID(0, 0))
+                                .addValue("upperId", new UUID(-1, -1))
+                                .addValue("limit", 1000);
+
+                List<String> plan = transactionTemplate.execute(status -> {
+                        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+                        return new NamedParameterJdbcTemplate(jdbcTemplate)
+                                        .queryForList("EXPLAIN " + SubscriptionRepository.DUE_QUERY, params,
+                                                        String.class);
+                });
+                List<String> openIndexes = jdbcTemplate.queryForList(OPEN_TRANSACTIONS_PARTITION_INDEXES,
+                                String.class);
+
+                String text = String.join("\n", plan);
+                assertFalse(text.contains("Seq Scan"), text);
+                assertTrue(text.contains("idx_subscriptions_expiration_status"), text);
+                assertFalse(openIndexes.isEmpty());
+                openIndexes.forEach(index -> assertTrue(text.contains(index), index + " ausente do plano:\n" + text));
+        }
+}
@@ -0,0 +1,156 @@
+package com.desafiotecnico.subscription.repository;
+
+import com.desafiotecnico.subscription.domain.RenewalCursor;
+import com.desafiotecnico.subscription.domain.RenewalShardLease;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/*
+ * Leases das fatias contra o Postgres de verdade: o SKIP LOCKED, o vencimento do lease e o reinício da rodada
+ * dependem do banco e não aparecem com mocks. Cada teste usa uma data própria, apagada no fim.
+ */
+@SpringBootTest
+public class RenewalShardLeaseRepositoryTest {
+
+        private static final Duration LEASE = Duration.ofSeconds(60);
+
+        @Autowired
+        private RenewalShardLeaseRepository renewalShardLeaseRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        private final LocalDate runDate = LocalDate.of(2060, 1, 1)
+                        .plusDays(ThreadLocalRandom.current().nextInt(3650));
+
+        @AfterEach
+        void tearDown() {
+                jdbcTemplate.update("DELETE FROM renewal_shard_leases WHERE run_date = ?", runDate);
+        }
+
+        @Test
+        void twoWorkersShouldClaimDisjointShards() throws Exception {
+                renewalShardLeaseRepository.startRound(runDate, 8, false);
+                var start = new CountDownLatch(1);
+
+                List<Future<Set<Integer>>> workers = new ArrayList<>();
+                try (var executor = Executors.newFixedThreadPool(2)) {
+                        for (String owner : List.of("worker-a", "worker-b")) {
+                                workers.add(executor.submit(() -> {
+                                        start.await();
+                                        Set<Integer> shards = new HashSet<>();
+                                        var lease = renewalShardLeaseRepository.claimNext(runDate, owner, LEASE);
+                                        while (lease.isPresent()) {
+                                                shards.add(lease.get().shard());
+                                                lease = renewalShardLeaseRepository.claimNext(runDate, owner, LEASE);
+                                        }
+                                        return shards;
+                                }));
+                        }
+                        start.countDown();
+                }
+
+                Set<Integer> a = workers.get(0).get();
+                Set<Integer> b = workers.get(1).get();
+                Set<Integer> all = new HashSet<>(a);
+                all.addAll(b);
+                assertEquals(Set.of(0, 1, 2, 3, 4, 5, 6, 7), all);
+                assertEquals(8, a.size() + b.size(), "fatia reivindicada pelos dois workers: " + a + " / " + b);
+        }
+
+        @Test
+        void shouldAdvanceOnlyWhileOwningTheLease() {
+                renewalShardLeaseRepository.startRound(runDate, 1, false);
+                var lease = renewalShardLeaseRepository.claimNext(runDate, "worker-a", LEASE).orElseThrow();
+                var cursor = new RenewalCursor(runDate, UUID.randomUUID());
+
+                assertTrue(renewalShardLeaseRepository.advance(lease, "worker-a", cursor, 5, LEASE));
+                assertFalse(renewalShardLeaseRepository.advance(lease, "worker-b", cursor, 5, LEASE));
+
+                var saved = single();
+                assertEquals(cursor, saved.cursor());
+                assertEquals(5, saved.processed());
+                assertEquals("worker-a", saved.owner());
+        }
+
+        @Test
+        void shouldReclaimExpiredLeaseFromTheCommittedCursor() {
+                renewalShardLeaseRepository.startRound(runDate, 1, false);
+                var lease = renewalShardLeaseRepository.claimNext(runDate, "worker-a", LEASE).orElseThrow();
+                var cursor = new RenewalCursor(runDate, UUID.randomUUID());
+                renewalShardLeaseRepository.advance(lease, "worker-a", cursor, 3, LEASE);
+
+                // Lease válido: ninguém mais pega a fatia
+                assertTrue(renewalShardLeaseRepository.claimNext(runDate, "worker-b", LEASE).isEmpty());
+
+                // worker-a parou de renovar o lease
+                jdbcTemplate.update("UPDATE renewal_shard_leases SET lease_until = now() - interval '1 second' " +
+                                "WHERE run_date = ?", runDate);
+                var reclaimed = renewalShardLeaseRepository.claimNext(runDate, "worker-b", LEASE).orElseThrow();
+
+                assertEquals("worker-b", reclaimed.owner());
+                assertEquals(cursor, reclaimed.cursor());
+                assertEquals(3, reclaimed.processed());
+                // O dono antigo não grava mais nada na fatia
+                assertFalse(renewalShardLeaseRepository.advance(lease, "worker-a", cursor, 1, LEASE));
+        }
+
+        @Test
+        void shouldRestartRoundOnlyWhenAllShardsAreDone() {
+                renewalShardLeaseRepository.startRound(runDate, 2, false);
+                var first = renewalShardLeaseRepository.claimNext(runDate, "worker-a", LEASE).orElseThrow();
+                var second = renewalShardLeaseRepository.claimNext(runDate, "worker-a", LEASE).orElseThrow();
+                renewalShardLeaseRepository.advance(first, "worker-a", new RenewalCursor(runDate, UUID.randomUUID()),
+                                4, LEASE);
+                renewalShardLeaseRepository.complete(first, "worker-a");
+
+                // Rodada em andamento: quem chega entra nela em vez de reiniciar
+                renewalShardLeaseRepository.startRound(runDate, 2, true);
+                assertEquals(List.of(RenewalShardLease.DONE, RenewalShardLease.RUNNING), statuses());
+
+                renewalShardLeaseRepository.complete(second, "worker-a");
+                // Sem restartFinished o dia concluído fica concluído
+                renewalShardLeaseRepository.startRound(runDate, 2, false);
+                assertEquals(List.of(RenewalShardLease.DONE, RenewalShardLease.DONE), statuses());
+
+                renewalShardLeaseRepository.startRound(runDate, 2, true);
+                var leases = renewalShardLeaseRepository.findByRunDate(runDate);
+                assertEquals(List.of(RenewalShardLease.PENDING, RenewalShardLease.PENDING), statuses());
+                leases.forEach(lease -> {
+                        assertNull(lease.owner());
+                        assertNull(lease.lastId());
+                        assertEquals(0, lease.processed());
+                });
+        }
+
+        private RenewalShardLease single() {
+                var leases = renewalShardLeaseRepository.findByRunDate(runDate);
+                assertEquals(1, leases.size());
+                return leases.get(0);
+        }
+
+        private List<String> statuses() {
+                return renewalShardLeaseRepository.findByRunDate(runDate).stream().map(RenewalShardLease::status)
+                                .toList();
+        }
+}
@@ -0,0 +1,57 @@
+package com.desafiotecnico.subscription.retry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExponentialBackoffRetryPolicyTest {
+
+        private static final long NOW = 1_000_000L;
+
+        private final SplittableRandom random = new SplittableRandom(42);
+
+        private final ExponentialBackoffRetryPolicy policy = new ExponentialBackoffRetryPolicy(Map.of(
+                        RetryCause.DECLINED, new ExponentialBackoffRetryPolicy.Limits(3, 1000, 5000),
+                        RetryCause.GATEWAY_UNAVAILABLE, new ExponentialBackoffRetryPolicy.Limits(20, 1000, 60000)),
+                        100_000L, () -> random, () -> NOW);
+
+        @Test
+        void shouldKeepDelayWithinExponentialCeiling() {
+                for (int i = 0; i < 1000; i++) {
+                        assertTrue(policy.decide(RetryCause.DECLINED, 1, NOW).delayMs() <= 1000);
+                        assertTrue(policy.decide(RetryCause.DECLINED, 2, NOW).delayMs() <= 2000);
+                        assertTrue(policy.decide(RetryCause.DECLINED, 3, NOW).delayMs() <= 4000);
+                }
+        }
+
+        @Test
+        void shouldSpreadDelaysInsteadOfSynchronizingThem() {
+                var delays = new java.util.HashSet<Long>();
+                for (int i = 0; i < 100; i++) {
+                        delays.add(policy.decide(RetryCause.GATEWAY_UNAVAILABLE, 5, NOW).delayMs());
+                }
+                assertTrue(delays.size() > 50);
+        }
+
+        @Test
+        void shouldCapDelayAtMaxForHighAttempts() {
+                var decision = policy.decide(RetryCause.GATEWAY_UNAVAILABLE, 20, 0);
+                assertTrue(decision.retry());
+                assertTrue(decision.delayMs() <= 60000);
+        }
+
+        @Test
+        void shouldGiveUpAfterMaxAttemptsOfTheCause() {
+                assertFalse(policy.decide(RetryCause.DECLINED, 4, NOW).retry());
+                assertTrue(policy.decide(RetryCause.GATEWAY_UNAVAILABLE, 4, NOW).retry());
+        }
+
+        @Test
+        void shouldGiveUpWhenRetryWouldLandAfterTotalDeadline() {
+                assertFalse(policy.decide(RetryCause.DECLINED, 1, NOW - 100_000L).retry());
+        }
+}
@@ -0,0 +1,125 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.OutboxEvent;
+import com.desafiotecnico.subscription.producers.RabbitOutboxPublisher;
+import com.desafiotecnico.subscription.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+        @Mock
+        private OutboxEventRepository outboxEventRepository;
+
+        @Mock
+        private RabbitOutboxPublisher rabbitOutboxPublisher;
+
+        @Mock
+        private TransactionTemplate transactionTemplate;
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private OutboxRelay outboxRelay;
+
+        @BeforeEach
+        void setUp() {
+                when(transactionTemplate.execute(any()))
+                                .thenAnswer(invocation -> ((TransactionCallback<?>) invocation.getArgument(0))
+                                                .doInTransaction(null));
+
+                outboxRelay = new OutboxRelay(outboxEventRepository, rabbitOutboxPublisher, transactionTemplate,
+                                meterRegistry);
+                ReflectionTestUtils.setField(outboxRelay, "batchSize", 2);
+                ReflectionTestUtils.setField(outboxRelay, "leaseMs", 30000L);
+        }
+
+        @Test
+        void shouldDeleteOnlyConfirmedEventsAndKeepTheRestForNextRound() {
+                // Arrange
+                var confirmed = outboxEvent();
+                var nacked = outboxEvent();
+
+                when(outboxEventRepository.lockNextBatch(eq(2), any())).thenReturn(List.of(confirmed, nacked));
+                when(rabbitOutboxPublisher.publish(List.of(confirmed, nacked))).thenReturn(List.of(confirmed.getId()));
+                when(outboxEventRepository.findOldestCreatedAt()).thenReturn(nacked.getCreatedAt());
+
+                // Act
+                outboxRelay.relay();
+
+                // Assert
+                verify(outboxEventRepository).deleteAllByIdInBatch(List.of(confirmed.getId()));
+                verify(outboxEventRepository).releaseLease(List.of(nacked.getId()));
+                verify(outboxEventRepository, times(1)).lockNextBatch(eq(2), any());
+        }
+
+        @Test
+        void shouldKeepDrainingWhileBatchesAreFull() {
+                // Arrange
+                var first = List.of(outboxEvent(), outboxEvent());
+                var second = List.of(outboxEvent());
+
+                when(outboxEventRepository.lockNextBatch(eq(2), any())).thenReturn(first, second);
+                when(rabbitOutboxPublisher.publish(first)).thenReturn(first.stream().map(OutboxEvent::getId).toList());
+                when(rabbitOutboxPublisher.publish(second)).thenReturn(second.stream().map(OutboxEvent::getId).toList());
+
+                // Act
+                outboxRelay.relay();
+
+                // Assert
+                verify(outboxEventRepository, times(2)).lockNextBatch(eq(2), any());
+                assertEquals(0.0, meterRegistry.get("outbox.relay.lag").gauge().value());
+        }
+
+        @Test
+        void shouldPublishOutsideTheClaimTransaction() {
+                // Arrange
+                var event = outboxEvent();
+                var inTransaction = new boolean[1];
+
+                when(transactionTemplate.execute(any())).thenAnswer(invocation -> {
+                        inTransaction[0] = true;
+                        try {
+                                return ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null);
+                        } finally {
+                                inTransaction[0] = false;
+                        }
+                });
+                when(outboxEventRepository.lockNextBatch(eq(2), any())).thenReturn(List.of(event));
+                when(rabbitOutboxPublisher.publish(List.of(event))).thenAnswer(invocation -> {
+                        assertFalse(inTransaction[0]);
+                        return List.of(event.getId());
+                });
+
+                // Act
+                outboxRelay.relay();
+
+                // Assert
+                verify(outboxEventRepository).lease(eq(List.of(event.getId())), any());
+                verify(outboxEventRepository).deleteAllByIdInBatch(List.of(event.getId()));
+        }
+
+        private OutboxEvent outboxEvent() {
+                return OutboxEvent.builder()
+                                .id(UUID.randomUUID())
+                                .createdAt(LocalDateTime.now().minusSeconds(5))
+                                .build();
+        }
+}
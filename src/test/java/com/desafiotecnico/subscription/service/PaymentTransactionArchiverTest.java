@@ -0,0 +1,68 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.repository.PaymentTransactionArchiveRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentTransactionArchiverTest {
+
+        @Mock
+        private PaymentTransactionArchiveRepository paymentTransactionArchiveRepository;
+
+        @Mock
+        private TransactionTemplate transactionTemplate;
+
+        @InjectMocks
+        private PaymentTransactionArchiver archiver;
+
+        @BeforeEach
+        void setUp() {
+                ReflectionTestUtils.setField(archiver, "batchSize", 100);
+                ReflectionTestUtils.setField(archiver, "monthsAhead", 2);
+                lenient().when(transactionTemplate.execute(any()))
+                                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0)
+                                                .doInTransaction(null));
+        }
+
+        @Test
+        void shouldArchiveInBatchesUntilAPartialBatch() {
+                LocalDate horizon = LocalDate.of(2026, 1, 1);
+                when(paymentTransactionArchiveRepository.archiveBatch(eq(horizon.atStartOfDay()), eq(100)))
+                                .thenReturn(100, 100, 40);
+                when(paymentTransactionArchiveRepository.findPartitionsBefore(horizon))
+                                .thenReturn(List.of("payment_transactions_y2025m11", "payment_transactions_y2025m12"));
+                when(paymentTransactionArchiveRepository.dropIfEmpty(any())).thenReturn(true, false);
+
+                assertEquals(240, archiver.archive(horizon));
+
+                verify(paymentTransactionArchiveRepository, times(3)).archiveBatch(any(), eq(100));
+                verify(paymentTransactionArchiveRepository).dropIfEmpty("payment_transactions_y2025m11");
+                verify(paymentTransactionArchiveRepository).dropIfEmpty("payment_transactions_y2025m12");
+        }
+
+        @Test
+        void shouldCreateCurrentAndUpcomingPartitions() {
+                archiver.ensurePartitions(LocalDate.of(2026, 10, 18));
+
+                verify(paymentTransactionArchiveRepository).ensurePartition(LocalDate.of(2026, 10, 1));
+                verify(paymentTransactionArchiveRepository).ensurePartition(LocalDate.of(2026, 11, 1));
+                verify(paymentTransactionArchiveRepository).ensurePartition(LocalDate.of(2026, 12, 1));
+                verifyNoMoreInteractions(paymentTransactionArchiveRepository);
+        }
+}
@@ -1,30 +1,45 @@
 package com.desafiotecnico.subscription.service;
 
-import com.desafiotecnico.subscription.config.RabbitMQConfig;
 import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
 import com.desafiotecnico.subscription.domain.PaymentTransaction;
 import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
 import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
+import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
 import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.gateway.PaymentGatewayClient;
+import com.desafiotecnico.subscription.idempotency.PaymentIdempotencyStore;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
 import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import com.desafiotecnico.subscription.retry.RetryCause;
+import com.desafiotecnico.subscription.retry.RetryDecision;
+import com.desafiotecnico.subscription.retry.RetryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.core.MessagePostProcessor;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.HttpServerErrorException;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -36,21 +51,31 @@ class PaymentTransactionServiceTest {
         private PaymentTransactionRepository paymentTransactionRepository;
 
         @Mock
-        private RestTemplate restTemplate;
+        private PaymentGatewayClient paymentGatewayClient;
 
         @Mock
-        private RabbitTemplate rabbitTemplate;
+        private PaymentTransactionStateService paymentTransactionStateService;
 
-        @InjectMocks
-        private PaymentTransactionService paymentTransactionService;
+        @Mock
+        private SubscriptionRenewalProducer subscriptionRenewalProducer;
 
         @Mock
-        private SubscriptionService subscriptionService;
+        private RetryPolicy paymentRetryPolicy;
+
+        @Mock
+        private PaymentIdempotencyStore paymentIdempotencyStore;
+
+        @Spy
+        private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        @InjectMocks
+        private PaymentTransactionService paymentTransactionService;
 
         @BeforeEach
         void setUp() {
-                ReflectionTestUtils.setField(paymentTransactionService, "paymentUrl", "http://localhost:8080/payment");
-                ReflectionTestUtils.setField(paymentTransactionService, "declinedPaymentRetryIntervalInSeconds", 10L);
+                ReflectionTestUtils.setField(paymentTransactionService, "gatewayMode", "sync");
+                lenient().when(paymentIdempotencyStore.tryClaim(any()))
+                                .thenReturn(PaymentIdempotencyStore.Claim.CLAIMED);
         }
 
         @Test
@@ -65,29 +90,25 @@ class PaymentTransactionServiceTest {
                                 .rejectedPaymentCount(0)
                                 .build();
 
-                PaymentTransaction transaction = new PaymentTransaction();
-                transaction.setId(transactionId);
-                transaction.setStatus(PaymentTransactionStatus.CREATED.name());
-
-                when(paymentTransactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
-                when(restTemplate.postForObject(anyString(), any(), any()))
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any()))
                                 .thenThrow(new HttpClientErrorException(
                                                 org.springframework.http.HttpStatus.BAD_REQUEST));
+                when(paymentRetryPolicy.decide(eq(RetryCause.DECLINED), eq(1), anyLong()))
+                                .thenReturn(RetryDecision.retryAfter(10000L));
 
                 // Act
                 paymentTransactionService.startPaymentTransaction(event);
 
                 // Assert
-                verify(paymentTransactionRepository, times(2)).save(transaction);
-                assertEquals(PaymentTransactionStatus.PENDING_RETRY.name(), transaction.getStatus());
-
                 ArgumentCaptor<PaymentTransactionEvent> eventCaptor = ArgumentCaptor
                                 .forClass(PaymentTransactionEvent.class);
-                verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_SUBSCRIPTION),
-                                eq(RabbitMQConfig.QUEUE_SUBSCRIPTION_RENEWAL_START), eventCaptor.capture(),
-                                any(MessagePostProcessor.class));
+                verify(paymentTransactionStateService).scheduleRetry(eq(PaymentTransactionStatus.PENDING_RETRY),
+                                eventCaptor.capture(), eq(10000L), any());
 
                 assertEquals(1, eventCaptor.getValue().getRejectedPaymentCount());
+                assertEquals(1, meterRegistry.get("payment.retries").tag("cause", "DECLINED")
+                                .tag("result", "scheduled").counter().count());
         }
 
         @Test
@@ -102,26 +123,24 @@ class PaymentTransactionServiceTest {
                                 .rejectedPaymentCount(3)
                                 .build();
 
-                PaymentTransaction transaction = new PaymentTransaction();
-                transaction.setId(transactionId);
-                transaction.setStatus(PaymentTransactionStatus.CREATED.name());
-
-                when(paymentTransactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
-                when(restTemplate.postForObject(anyString(), any(), any()))
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any()))
                                 .thenThrow(new HttpClientErrorException(
                                                 org.springframework.http.HttpStatus.BAD_REQUEST));
+                when(paymentRetryPolicy.decide(eq(RetryCause.DECLINED), eq(4), anyLong()))
+                                .thenReturn(RetryDecision.giveUp());
 
                 // Act
                 paymentTransactionService.startPaymentTransaction(event);
 
                 // Assert
-                verify(paymentTransactionRepository, times(2)).save(transaction);
-                assertEquals(PaymentTransactionStatus.DECLINED.name(), transaction.getStatus());
-                verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString(),
-                                any(PaymentTransactionEvent.class), any(MessagePostProcessor.class));
+                verify(paymentTransactionStateService, never()).scheduleRetry(any(), any(), anyLong(), any());
 
-                verify(rabbitTemplate).convertAndSend(eq(RabbitMQConfig.EXCHANGE_SUBSCRIPTION),
-                                eq(RabbitMQConfig.QUEUE_SUBSCRIPTION_CANCEL), any(SubscriptionCancelEvent.class));
+                ArgumentCaptor<SubscriptionCancelEvent> cancelCaptor = ArgumentCaptor
+                                .forClass(SubscriptionCancelEvent.class);
+                verify(paymentTransactionStateService).decline(eq(event), anyString(),
+                                cancelCaptor.capture(), any());
+                assertEquals(subscriptionId, cancelCaptor.getValue().getSubscriptionId());
         }
 
         @Test
@@ -135,22 +154,367 @@ class PaymentTransactionServiceTest {
                                 .priceInCents(1000)
                                 .build();
 
-                PaymentTransaction transaction = new PaymentTransaction();
-                transaction.setId(transactionId);
-                transaction.setStatus(PaymentTransactionStatus.CREATED.name());
+                PaymentGatewayResponse response = new PaymentGatewayResponse();
+                response.setCustomId(transactionId.toString());
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any())).thenReturn(response);
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert
+                verify(paymentTransactionStateService).approve(eq(event), any());
+                verify(paymentIdempotencyStore).markDone(transactionId);
+        }
+
+        @Test
+        void shouldDropDuplicateDeliveryBeforeTouchingTheDatabase() {
+                // Arrange
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+
+                when(paymentIdempotencyStore.tryClaim(event)).thenReturn(PaymentIdempotencyStore.Claim.IN_FLIGHT);
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert
+                verifyNoInteractions(paymentTransactionStateService, paymentGatewayClient);
+                verify(subscriptionRenewalProducer).sendRenewalStart(eq(event), anyLong());
+        }
+
+        @Test
+        void shouldReleaseClaimWhenFailingBeforeCallingTheGateway() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
 
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any()))
+                                .thenThrow(new IllegalStateException("pool esgotado"));
+
+                // Act
+                assertThrows(IllegalStateException.class,
+                                () -> paymentTransactionService.startPaymentTransaction(event));
+
+                // Assert
+                verifyNoInteractions(paymentGatewayClient);
+                verify(paymentIdempotencyStore).release(argThat(attempt -> attempt.getTransactionId()
+                                .equals(transactionId)));
+        }
+
+        @Test
+        void shouldKeepClaimAndRejectWhenResultIsNotRecordedAfterCharging() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                UUID subscriptionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(subscriptionId)
+                                .priceInCents(1000)
+                                .build();
                 PaymentGatewayResponse response = new PaymentGatewayResponse();
                 response.setCustomId(transactionId.toString());
 
-                when(paymentTransactionRepository.findById(transactionId)).thenReturn(Optional.of(transaction));
-                when(restTemplate.postForObject(anyString(), any(), any())).thenReturn(response);
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any())).thenReturn(response);
+                when(paymentTransactionStateService.approve(eq(event), any()))
+                                .thenThrow(new IllegalStateException("pool esgotado"));
+
+                // Act
+                assertThrows(AmqpRejectAndDontRequeueException.class,
+                                () -> paymentTransactionService.startPaymentTransaction(event));
+
+                // Assert: o gateway já cobrou, então a redelivery não pode passar pela deduplicação
+                verify(paymentIdempotencyStore, never()).release(any());
+                verify(paymentIdempotencyStore, never()).markDone(any());
+                assertEquals(1, meterRegistry.get("payment.settle.failures").counter().count());
+        }
+
+        @Test
+        void shouldScheduleRetryWhenGatewayReturns5xx() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any()))
+                                .thenThrow(new HttpServerErrorException(
+                                                org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE));
+                when(paymentRetryPolicy.decide(eq(RetryCause.GATEWAY_UNAVAILABLE), eq(1), anyLong()))
+                                .thenReturn(RetryDecision.retryAfter(1500L));
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert
+                verify(paymentTransactionStateService).scheduleRetry(eq(PaymentTransactionStatus.GATEWAY_ERROR),
+                                eq(event), eq(1500L), any());
+                verify(paymentTransactionStateService, never()).approve(any(), any());
+                assertEquals(1, event.getGatewayErrorCount());
+        }
+
+        @Test
+        void shouldAbortWithoutCancellingSubscriptionWhenGatewayRetriesAreExhausted() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .gatewayErrorCount(10)
+                                .build();
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
+                when(paymentGatewayClient.charge(any()))
+                                .thenThrow(new HttpServerErrorException(
+                                                org.springframework.http.HttpStatus.BAD_GATEWAY));
+                when(paymentRetryPolicy.decide(eq(RetryCause.GATEWAY_UNAVAILABLE), eq(11), anyLong()))
+                                .thenReturn(RetryDecision.giveUp());
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert
+                verify(paymentTransactionStateService).abort(eq(event), anyString(), any());
+                verify(paymentTransactionStateService, never()).decline(any(), any(), any(), any());
+        }
+
+        @Test
+        void shouldSkipGatewayWhenTransactionIsAlreadyFinal() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(false);
+                when(paymentTransactionStateService.findFinished(List.of(transactionId)))
+                                .thenReturn(Set.of(transactionId));
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert
+                verifyNoInteractions(paymentGatewayClient);
+                verify(paymentIdempotencyStore).markDone(transactionId);
+        }
+
+        @Test
+        void shouldRequeueWithDelayWhenAnotherConsumerHoldsTheLease() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+                ReflectionTestUtils.setField(paymentTransactionService, "inFlightRetryDelayMs", 30000L);
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(false);
+                when(paymentTransactionStateService.findFinished(List.of(transactionId))).thenReturn(Set.of());
+
+                // Act
+                paymentTransactionService.startPaymentTransaction(event);
+
+                // Assert: não dá a transação como concluída enquanto ela está em PROCESSING com outro consumidor
+                verifyNoInteractions(paymentGatewayClient);
+                verify(paymentIdempotencyStore, never()).markDone(any());
+                verify(paymentIdempotencyStore).release(argThat(attempt -> attempt.getTransactionId()
+                                .equals(transactionId)));
+                verify(subscriptionRenewalProducer).sendRenewalStart(event, 30000L);
+        }
+
+        @Test
+        void shouldOnlySubmitChargeInCallbackMode() {
+                // Arrange
+                ReflectionTestUtils.setField(paymentTransactionService, "gatewayMode",
+                                PaymentTransactionService.MODE_CALLBACK);
+                ReflectionTestUtils.setField(paymentTransactionService, "callbackUrl",
+                                "http://localhost:8080/payments/callback");
+
+                UUID transactionId = UUID.randomUUID();
+                PaymentTransactionEvent event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+
+                when(paymentTransactionStateService.claimForProcessing(eq(event), any())).thenReturn(true);
 
                 // Act
                 paymentTransactionService.startPaymentTransaction(event);
 
                 // Assert
-                verify(paymentTransactionRepository, times(2)).save(transaction);
-                assertEquals(PaymentTransactionStatus.APPROVED.name(), transaction.getStatus());
-                verify(subscriptionService).renewSubscription(subscriptionId);
+                verify(paymentGatewayClient).submit(argThat(request -> request.getCallbackUrl() != null));
+                verify(paymentGatewayClient, never()).charge(any());
+                verify(paymentTransactionStateService, never()).approve(any(), any());
+        }
+
+        @Test
+        void shouldApproveWhenGatewayCallbackReportsSuccess() {
+                // Arrange
+                UUID transactionId = UUID.randomUUID();
+                UUID subscriptionId = UUID.randomUUID();
+                PaymentTransaction transaction = claimed(transactionId);
+                transaction.setSubscription(com.desafiotecnico.subscription.domain.Subscription.builder()
+                                .id(subscriptionId)
+                                .build());
+                transaction.setPriceInCents(1000);
+
+                when(paymentTransactionStateService.findProcessing(transactionId)).thenReturn(Optional.of(transaction));
+
+                // Act
+                paymentTransactionService.settlePayment(com.desafiotecnico.subscription.dto.event.PaymentGatewayResponse
+                                .builder()
+                                .transactionId(transactionId)
+                                .success(true)
+                                .build());
+
+                // Assert: grava em nome de quem reivindicou a transação
+                verify(paymentTransactionStateService).approve(argThat(event -> event.getTransactionId()
+                                .equals(transactionId) && event.getSubscriptionId().equals(subscriptionId)),
+                                eq(transaction.getProcessingOwner()));
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldSettleWholeBatchInOneWrite() {
+                // Arrange
+                PaymentTransactionEvent approved = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(1000)
+                                .build();
+                PaymentTransactionEvent declined = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(2000)
+                                .build();
+                PaymentTransactionEvent alreadyFinal = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .priceInCents(3000)
+                                .build();
+
+                PaymentGatewayResponse response = new PaymentGatewayResponse();
+                response.setCustomId(approved.getTransactionId().toString());
+
+                when(paymentTransactionStateService.claimAllForProcessing(anyList(), any()))
+                                .thenReturn(Set.of(approved.getTransactionId(), declined.getTransactionId()));
+                when(paymentTransactionStateService.findFinished(List.of(alreadyFinal.getTransactionId())))
+                                .thenReturn(Set.of(alreadyFinal.getTransactionId()));
+                when(paymentGatewayClient.charge(any())).thenAnswer(invocation -> {
+                        PaymentGatewayRequest request = invocation.getArgument(0);
+                        if (request.getCustomId().equals(declined.getTransactionId())) {
+                                throw new HttpClientErrorException(org.springframework.http.HttpStatus.BAD_REQUEST);
+                        }
+                        return response;
+                });
+                when(paymentRetryPolicy.decide(eq(RetryCause.DECLINED), eq(1), anyLong()))
+                                .thenReturn(RetryDecision.retryAfter(5000L));
+
+                // Act
+                var result = paymentTransactionService
+                                .startPaymentTransactions(List.of(approved, declined, alreadyFinal, approved));
+
+                // Assert
+                assertTrue(result.rejected().isEmpty());
+                assertTrue(result.requeued().isEmpty());
+                verify(paymentTransactionStateService, times(1)).claimAllForProcessing(anyList(), any());
+                verify(paymentGatewayClient, times(2)).charge(any());
+
+                ArgumentCaptor<List<PaymentSettlement>> captor = ArgumentCaptor.forClass(List.class);
+                verify(paymentTransactionStateService, times(1)).settleAll(captor.capture(), any());
+                Map<UUID, PaymentTransactionStatus> statuses = captor.getValue().stream()
+                                .collect(Collectors.toMap(settlement -> settlement.event().getTransactionId(),
+                                                PaymentSettlement::status));
+                assertEquals(Map.of(approved.getTransactionId(), PaymentTransactionStatus.APPROVED,
+                                declined.getTransactionId(), PaymentTransactionStatus.PENDING_RETRY), statuses);
+
+                verify(paymentIdempotencyStore).markDone(approved.getTransactionId());
+                verify(paymentIdempotencyStore).markDone(alreadyFinal.getTransactionId());
+                verify(paymentTransactionStateService, never()).approve(any(), any());
+        }
+
+        @Test
+        void shouldReleaseClaimsAndRequeueWhenBatchClaimFails() {
+                // Arrange
+                PaymentTransactionEvent first = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .build();
+                PaymentTransactionEvent second = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .build();
+                when(paymentTransactionStateService.claimAllForProcessing(anyList(), any()))
+                                .thenThrow(new RuntimeException("DB fora"));
+
+                // Act
+                var result = paymentTransactionService.startPaymentTransactions(List.of(first, second));
+
+                // Assert
+                assertEquals(List.of(first, second), result.requeued());
+                assertTrue(result.rejected().isEmpty());
+                verify(paymentIdempotencyStore, times(2)).release(any());
+                verifyNoInteractions(paymentGatewayClient);
+        }
+
+        @Test
+        void shouldSettleOneByOneAndNotRequeueWhenBatchWriteFails() {
+                // Arrange
+                PaymentTransactionEvent saved = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .build();
+                PaymentTransactionEvent lost = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .build();
+                PaymentGatewayResponse response = new PaymentGatewayResponse();
+                response.setCustomId("ok");
+
+                when(paymentTransactionStateService.claimAllForProcessing(anyList(), any()))
+                                .thenReturn(Set.of(saved.getTransactionId(), lost.getTransactionId()));
+                when(paymentGatewayClient.charge(any())).thenReturn(response);
+                doThrow(new RuntimeException("DB fora")).when(paymentTransactionStateService)
+                                .settleAll(anyList(), any());
+                when(paymentTransactionStateService.approve(any(), any())).thenAnswer(invocation -> {
+                        if (lost.equals(invocation.getArgument(0))) {
+                                throw new RuntimeException("DB fora");
+                        }
+                        return true;
+                });
+
+                // Act
+                var result = paymentTransactionService.startPaymentTransactions(List.of(saved, lost));
+
+                // Assert
+                assertEquals(List.of(lost), result.rejected());
+                assertTrue(result.requeued().isEmpty());
+                verify(paymentTransactionStateService).approve(eq(saved), any());
+                verify(paymentIdempotencyStore).markDone(saved.getTransactionId());
+                verify(paymentIdempotencyStore, never()).markDone(lost.getTransactionId());
+                verify(paymentIdempotencyStore, never()).release(any());
+        }
+
+        private PaymentTransaction claimed(UUID transactionId) {
+                PaymentTransaction transaction = new PaymentTransaction();
+                transaction.setId(transactionId);
+                transaction.setStatus(PaymentTransactionStatus.PROCESSING.name());
+                transaction.setProcessingOwner(UUID.randomUUID());
+                return transaction;
         }
 }
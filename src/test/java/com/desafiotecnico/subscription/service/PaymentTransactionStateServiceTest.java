@@ -0,0 +1,174 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.PaymentTransactionStatus;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
+import com.desafiotecnico.subscription.repository.PaymentTransactionBulkRepository.StartRange;
+import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentTransactionStateServiceTest {
+
+        @Mock
+        private PaymentTransactionRepository paymentTransactionRepository;
+
+        @Mock
+        private SubscriptionService subscriptionService;
+
+        @Mock
+        private SubscriptionRenewalProducer subscriptionRenewalProducer;
+
+        @Spy
+        private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        @InjectMocks
+        private PaymentTransactionStateService stateService;
+
+        @Test
+        void shouldRenewSubscriptionOnlyWhenApprovalWinsTheTransition() {
+                UUID transactionId = UUID.randomUUID();
+                UUID subscriptionId = UUID.randomUUID();
+                UUID owner = UUID.randomUUID();
+                var event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .subscriptionId(subscriptionId)
+                                .build();
+                when(paymentTransactionRepository.finish(eq(transactionId), any(), any(), eq("APPROVED"), isNull(),
+                                any(), eq(owner))).thenReturn(1, 0);
+
+                assertTrue(stateService.approve(event, owner));
+                assertFalse(stateService.approve(event, owner));
+
+                verify(subscriptionService, times(1)).renewSubscription(subscriptionId);
+        }
+
+        @Test
+        void shouldNotRequeueWhenRetryLosesTheTransition() {
+                UUID transactionId = UUID.randomUUID();
+                var event = PaymentTransactionEvent.builder()
+                                .transactionId(transactionId)
+                                .rejectedPaymentCount(1)
+                                .build();
+                UUID owner = UUID.randomUUID();
+                when(paymentTransactionRepository.markForRetry(transactionId, StartRange.ANY.from(),
+                                StartRange.ANY.to(), "PENDING_RETRY", 1, owner)).thenReturn(0);
+
+                assertFalse(stateService.scheduleRetry(PaymentTransactionStatus.PENDING_RETRY, event, 1000, owner));
+
+                verify(subscriptionRenewalProducer, never()).sendRenewalStart(any(), anyLong());
+        }
+
+        @Test
+        void shouldApplyBatchEffectsOnlyForWinners() {
+                var winner = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .build();
+                var loser = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .subscriptionId(UUID.randomUUID())
+                                .build();
+                UUID owner = UUID.randomUUID();
+                when(paymentTransactionRepository.transitionAll(anyList(), eq(owner)))
+                                .thenReturn(new boolean[] { true, false });
+
+                stateService.settleAll(List.of(PaymentSettlement.approved(winner), PaymentSettlement.approved(loser)),
+                                owner);
+
+                verify(subscriptionService).renewSubscriptions(List.of(winner.getSubscriptionId()));
+        }
+
+        @Test
+        void shouldNotFinishWithTheTokenOfAnExpiredLease() {
+                UUID transactionId = UUID.randomUUID();
+                UUID staleOwner = UUID.randomUUID();
+                var event = PaymentTransactionEvent.builder().transactionId(transactionId).build();
+                // Outro consumidor reivindicou a transação: o token antigo não casa nenhuma linha
+                when(paymentTransactionRepository.finish(eq(transactionId), any(), any(), eq("ABORTED"), any(),
+                                any(), eq(staleOwner))).thenReturn(0);
+
+                assertFalse(stateService.abort(event, "timeout", staleOwner));
+
+                assertEquals(1, meterRegistry.get("payment.transactions.transitions.lost").tag("status", "ABORTED")
+                                .counter().count());
+        }
+
+        @Test
+        void shouldReportOnlyFinishedTransactionsAmongLostClaims() {
+                UUID finished = UUID.randomUUID();
+                UUID processingElsewhere = UUID.randomUUID();
+                when(paymentTransactionRepository.findFinishedIds(List.of(finished, processingElsewhere),
+                                PaymentTransactionStatus.FINAL)).thenReturn(List.of(finished));
+
+                assertEquals(Set.of(finished), stateService.findFinished(List.of(finished, processingElsewhere)));
+                assertTrue(stateService.findFinished(List.of()).isEmpty());
+        }
+
+        @Test
+        void shouldClaimOnlyWithinTheMillisecondTheTransactionStarted() {
+                // data_inicio com microssegundos, como gravado pelo TriggersService
+                var dataInicio = LocalDateTime.of(2026, 3, 10, 8, 30, 15, 123_456_000);
+                var event = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .startedAt(dataInicio.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                                .build();
+                UUID owner = UUID.randomUUID();
+                when(paymentTransactionRepository.claim(eq(event.getTransactionId()),
+                                eq(LocalDateTime.of(2026, 3, 10, 8, 30, 15, 123_000_000)),
+                                eq(LocalDateTime.of(2026, 3, 10, 8, 30, 15, 124_000_000)),
+                                eq(PaymentTransactionStatus.CLAIMABLE), any(), any(), eq(owner))).thenReturn(1);
+
+                assertTrue(stateService.claimForProcessing(event, owner));
+        }
+
+        @Test
+        void shouldClaimBatchWithinTheRangeCoveringAllStarts() {
+                long startedAt = 1_767_225_600_000L;
+                var first = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .startedAt(startedAt)
+                                .build();
+                var last = PaymentTransactionEvent.builder()
+                                .transactionId(UUID.randomUUID())
+                                .startedAt(startedAt + 86_400_000L)
+                                .build();
+                UUID owner = UUID.randomUUID();
+                var expected = new StartRange(StartRange.of(first.getStartedAt()).from(),
+                                StartRange.of(last.getStartedAt()).to());
+                when(paymentTransactionRepository.claimAll(
+                                eq(List.of(first.getTransactionId(), last.getTransactionId())), eq(expected), any(),
+                                any(), any(), eq(owner))).thenReturn(List.of(first.getTransactionId()));
+
+                assertEquals(Set.of(first.getTransactionId()),
+                                stateService.claimAllForProcessing(List.of(first, last), owner));
+        }
+
+        @Test
+        void shouldFallBackToOpenRangeForEventsWithoutStart() {
+                assertEquals(StartRange.ANY, StartRange.of(0));
+                assertEquals(StartRange.ANY, StartRange.of(1_767_225_600_000L).span(StartRange.of(0)));
+        }
+}
@@ -0,0 +1,46 @@
+package com.desafiotecnico.subscription.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RatePacerTest {
+
+        private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+        private final AtomicLong now = new AtomicLong(0);
+
+        private final RatePacer pacer = new RatePacer(10, now::get);
+
+        @Test
+        void shouldWaitForPermitsAlreadyReserved() {
+                assertEquals(0, pacer.reserve(5));
+                assertEquals(500 * MS, pacer.reserve(1));
+                assertEquals(600 * MS, pacer.reserve(2));
+
+                now.set(300 * MS);
+                assertEquals(500 * MS, pacer.reserve(1));
+        }
+
+        @Test
+        void shouldNotAccumulateIdleTime() {
+                assertEquals(0, pacer.reserve(1));
+
+                now.set(5000 * MS);
+                assertEquals(0, pacer.reserve(10));
+                assertEquals(1000 * MS, pacer.reserve(1));
+        }
+
+        @Test
+        void shouldSplitRateWindowAcrossParallelWorkers() {
+                // 50/s com 4 workers: blocos de 13, o último do segundo é encolhido pelo limitador
+                assertEquals(13, TriggersService.pacedChunk(50, 4, 500));
+                assertEquals(5, TriggersService.pacedChunk(50, 4, 5));
+                assertEquals(1, TriggersService.pacedChunk(0.5, 4, 500));
+                assertEquals(50, RenewalRateLimiter.permitsPerWindow(50));
+                assertEquals(1, RenewalRateLimiter.permitsPerWindow(0.2));
+        }
+}
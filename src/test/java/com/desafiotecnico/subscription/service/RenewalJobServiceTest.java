@@ -0,0 +1,143 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.RenewalJob;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import com.desafiotecnico.subscription.error.RenewalJobRunningException;
+import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
+import com.desafiotecnico.subscription.repository.RenewalJobRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RenewalJobServiceTest {
+
+        private static final LocalDate RUN_DATE = LocalDate.of(2030, 1, 10);
+
+        @Mock
+        private RenewalJobRepository renewalJobRepository;
+
+        @Mock
+        private PaymentTransactionRepository paymentTransactionRepository;
+
+        @Mock
+        private TriggersService triggersService;
+
+        @InjectMocks
+        private RenewalJobService renewalJobService;
+
+        @BeforeEach
+        void setUp() {
+                ReflectionTestUtils.setField(renewalJobService, "staleAfterSeconds", 60L);
+        }
+
+        @AfterEach
+        void tearDown() {
+                renewalJobService.shutdown();
+        }
+
+        @Test
+        void shouldRejectSecondRunningJobForTheSameDate() {
+                var running = job(RenewalJobStatus.RUNNING, 0);
+                when(renewalJobRepository.findFirstByRunDateAndStatus(RUN_DATE, RenewalJobStatus.RUNNING))
+                                .thenReturn(Optional.of(running));
+
+                var error = assertThrows(RenewalJobRunningException.class, () -> renewalJobService.start(10, RUN_DATE));
+
+                assertEquals(running.getId(), error.getJobId());
+                verify(renewalJobRepository, never()).save(any());
+                verifyNoInteractions(triggersService);
+        }
+
+        @Test
+        void shouldRejectWhenAnotherRequestCreatesTheJobFirst() {
+                var running = job(RenewalJobStatus.RUNNING, 0);
+                when(renewalJobRepository.findFirstByRunDateAndStatus(RUN_DATE, RenewalJobStatus.RUNNING))
+                                .thenReturn(Optional.empty(), Optional.of(running));
+                when(renewalJobRepository.save(any()))
+                                .thenThrow(new DataIntegrityViolationException("uq_renewal_jobs_running_date"));
+
+                var error = assertThrows(RenewalJobRunningException.class, () -> renewalJobService.start(10, RUN_DATE));
+
+                assertEquals(running.getId(), error.getJobId());
+                verify(triggersService, never()).triggerRenovation(any(), anyInt(), any(), anyBoolean());
+        }
+
+        @Test
+        void shouldNotCancelFinishedJob() {
+                var finished = job(RenewalJobStatus.COMPLETED, 10);
+                when(renewalJobRepository.finish(eq(finished.getId()), eq(RenewalJobStatus.CANCELLED), isNull(),
+                                any())).thenReturn(0);
+
+                assertFalse(renewalJobService.cancel(finished.getId()));
+        }
+
+        @Test
+        void shouldResumeStaleJobWithTheRemainingLimit() {
+                var stale = job(RenewalJobStatus.RUNNING, 3);
+                when(triggersService.instanceId()).thenReturn("instance-b");
+                when(renewalJobRepository.findByStatusAndHeartbeatAtBefore(eq(RenewalJobStatus.RUNNING), any()))
+                                .thenReturn(List.of(stale));
+                when(renewalJobRepository.claimStale(eq(stale.getId()), eq("instance-b"), any(), any()))
+                                .thenReturn(1);
+                when(renewalJobRepository.findById(stale.getId())).thenReturn(Optional.of(stale));
+
+                renewalJobService.heartbeatAndResume();
+
+                // Retoma sem recomeçar a rodada, só com o que faltou do limite
+                verify(triggersService, timeout(1000)).triggerRenovation(stale.getId(), 7, RUN_DATE, true);
+                verify(renewalJobRepository, timeout(1000)).finish(eq(stale.getId()),
+                                eq(RenewalJobStatus.COMPLETED), isNull(), any());
+        }
+
+        @Test
+        void shouldNotResumeStaleJobTakenByAnotherInstance() {
+                var stale = job(RenewalJobStatus.RUNNING, 3);
+                when(triggersService.instanceId()).thenReturn("instance-b");
+                when(renewalJobRepository.findByStatusAndHeartbeatAtBefore(eq(RenewalJobStatus.RUNNING), any()))
+                                .thenReturn(List.of(stale));
+                when(renewalJobRepository.claimStale(eq(stale.getId()), eq("instance-b"), any(), any()))
+                                .thenReturn(0);
+
+                renewalJobService.heartbeatAndResume();
+
+                verify(renewalJobRepository).heartbeat(eq("instance-b"), any());
+                verify(renewalJobRepository, never()).findById(any());
+                verify(triggersService, never()).triggerRenovation(any(), anyInt(), any(), anyBoolean());
+        }
+
+        private RenewalJob job(RenewalJobStatus status, int found) {
+                return RenewalJob.builder()
+                                .id(UUID.randomUUID())
+                                .runDate(RUN_DATE)
+                                .maxSubscriptions(10)
+                                .status(status)
+                                .found(found)
+                                .owner("instance-a")
+                                .heartbeatAt(LocalDateTime.now().minusMinutes(5))
+                                .createdAt(LocalDateTime.now().minusMinutes(10))
+                                .build();
+        }
+}
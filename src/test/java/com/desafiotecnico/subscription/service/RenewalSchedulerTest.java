@@ -0,0 +1,68 @@
+package com.desafiotecnico.subscription.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RenewalSchedulerTest {
+
+        @Mock
+        private TriggersService triggersService;
+
+        @InjectMocks
+        private RenewalScheduler renewalScheduler;
+
+        @Test
+        void shouldNotStartSecondRunWhileOneIsInProgress() throws Exception {
+                ReflectionTestUtils.setField(renewalScheduler, "enabled", true);
+                ReflectionTestUtils.setField(renewalScheduler, "ratePerSecond", 50.0);
+                var started = new CountDownLatch(1);
+                var release = new CountDownLatch(1);
+                var finished = new CountDownLatch(2);
+                when(triggersService.renewAtRate(any(LocalDate.class), anyDouble())).thenAnswer(invocation -> {
+                        started.countDown();
+                        release.await();
+                        finished.countDown();
+                        return 0;
+                }).thenAnswer(invocation -> {
+                        finished.countDown();
+                        return 0;
+                });
+
+                renewalScheduler.tick();
+                assertTrue(started.await(5, TimeUnit.SECONDS));
+                renewalScheduler.tick();
+                verify(triggersService, times(1)).renewAtRate(any(LocalDate.class), eq(50.0));
+
+                // Terminada a rodada, o próximo tick volta a rodar
+                release.countDown();
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (finished.getCount() > 0 && System.nanoTime() < deadline) {
+                        renewalScheduler.tick();
+                        Thread.sleep(10);
+                }
+                assertTrue(finished.await(0, TimeUnit.SECONDS));
+        }
+
+        @Test
+        void shouldNotRunWhenDisabled() {
+                ReflectionTestUtils.setField(renewalScheduler, "enabled", false);
+
+                renewalScheduler.tick();
+
+                verifyNoInteractions(triggersService);
+        }
+}
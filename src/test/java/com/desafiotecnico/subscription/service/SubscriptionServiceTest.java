@@ -1,29 +1,129 @@
 package com.desafiotecnico.subscription.service;
 
-import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
-import com.desafiotecnico.subscription.repository.PaymentTransactionRepository;
-import com.desafiotecnico.subscription.repository.SubscriptionRepository;
-import com.desafiotecnico.subscription.repository.UserRepository;
+import com.desafiotecnico.subscription.cache.SubscriptionLookupCache;
+import com.desafiotecnico.subscription.dto.event.SubscriptionCancelEvent;
 import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
-import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayRequest;
-import com.desafiotecnico.subscription.dto.gateway.PaymentGatewayResponse;
+import com.desafiotecnico.subscription.repository.SubscriptionBulkRepository.Cancelled;
+import com.desafiotecnico.subscription.repository.SubscriptionBulkRepository.Renewed;
+import com.desafiotecnico.subscription.repository.SubscriptionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.http.HttpEntity;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class SubscriptionServiceTest {
 
+        @Mock
+        private SubscriptionRepository subscriptionRepository;
+
+        @Mock
+        private SubscriptionLookupCache subscriptionLookupCache;
+
+        @Mock
+        private SubscriptionRenewalProducer subscriptionRenewalProducer;
+
+        @Spy
+        private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        @InjectMocks
+        private SubscriptionService subscriptionService;
+
+        @BeforeEach
+        void setUp() {
+                ReflectionTestUtils.setField(subscriptionService, "cancelRetryMaxAttempts", 3);
+                ReflectionTestUtils.setField(subscriptionService, "cancelRetryDelayMs", 1000L);
+        }
+
+        @Test
+        void shouldRenewBatchInOneStatementAndEvictEachUser() {
+                var first = new Renewed(UUID.randomUUID(), UUID.randomUUID(), LocalDate.now().plusMonths(1));
+                var second = new Renewed(UUID.randomUUID(), UUID.randomUUID(), LocalDate.now().plusMonths(1));
+                var ids = List.of(first.id(), second.id());
+                when(subscriptionRepository.renewAll(ids)).thenReturn(List.of(first, second));
+
+                subscriptionService.renewSubscriptions(ids);
+
+                verify(subscriptionRepository, never()).findAllById(any());
+                verify(subscriptionLookupCache).evictActiveSubscription(first.userId());
+                verify(subscriptionLookupCache).evictActiveSubscription(second.userId());
+        }
+
+        @Test
+        void shouldFailRenewalOfUnknownSubscription() {
+                UUID subscriptionId = UUID.randomUUID();
+                when(subscriptionRepository.renewAll(List.of(subscriptionId))).thenReturn(List.of());
+
+                assertThrows(IllegalArgumentException.class, () -> subscriptionService.renewSubscription(subscriptionId));
+        }
+
+        @Test
+        void shouldCancelBatchInOneStatementAndRetryMissingSubscriptions() {
+                var found = SubscriptionCancelEvent.builder().subscriptionId(UUID.randomUUID()).reason("recusado").build();
+                var missing = SubscriptionCancelEvent.builder().subscriptionId(UUID.randomUUID()).reason("recusado").build();
+                UUID userId = UUID.randomUUID();
+                when(subscriptionRepository.cancelAll(Map.of(found.getSubscriptionId(), "recusado",
+                                missing.getSubscriptionId(), "recusado")))
+                                .thenReturn(List.of(new Cancelled(found.getSubscriptionId(), userId)));
+
+                assertEquals(1, subscriptionService.cancelSubscriptions(List.of(found, missing)));
+
+                verify(subscriptionLookupCache).evictActiveSubscription(userId);
+                var retried = ArgumentCaptor.forClass(SubscriptionCancelEvent.class);
+                verify(subscriptionRenewalProducer).sendCancelSubscription(retried.capture(), eq(1000L));
+                assertEquals(missing.getSubscriptionId(), retried.getValue().getSubscriptionId());
+                assertEquals(1, retried.getValue().getAttempt());
+        }
+
+        @Test
+        void shouldStopRetryingCancellationAfterMaxAttempts() {
+                var missing = SubscriptionCancelEvent.builder()
+                                .subscriptionId(UUID.randomUUID())
+                                .reason("recusado")
+                                .attempt(2)
+                                .build();
+                when(subscriptionRepository.cancelAll(any())).thenReturn(List.of());
+
+                subscriptionService.cancelSubscriptions(List.of(missing));
+
+                verify(subscriptionRenewalProducer, never()).sendCancelSubscription(any(), anyLong());
+                assertEquals(1, meterRegistry.get("subscription.cancel.failures").tag("result", "exhausted")
+                                .counter().count());
+        }
+
+        @Test
+        void shouldRescheduleCancellationThatFailedInTheDatabase() {
+                var failed = SubscriptionCancelEvent.builder()
+                                .subscriptionId(UUID.randomUUID())
+                                .reason("recusado")
+                                .build();
+
+                subscriptionService.retryFailedCancel(failed);
+
+                var retried = ArgumentCaptor.forClass(SubscriptionCancelEvent.class);
+                verify(subscriptionRenewalProducer).sendCancelSubscription(retried.capture(), eq(1000L));
+                assertEquals(1, retried.getValue().getAttempt());
+                verifyNoInteractions(subscriptionRepository);
+        }
 }
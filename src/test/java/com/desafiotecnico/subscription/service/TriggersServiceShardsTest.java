@@ -0,0 +1,184 @@
+package com.desafiotecnico.subscription.service;
+
+import com.desafiotecnico.subscription.domain.Plan;
+import com.desafiotecnico.subscription.domain.RenewalJob;
+import com.desafiotecnico.subscription.domain.RenewalJobStatus;
+import com.desafiotecnico.subscription.domain.RenewalShardLease;
+import com.desafiotecnico.subscription.domain.Subscription;
+import com.desafiotecnico.subscription.domain.SubscriptionStatus;
+import com.desafiotecnico.subscription.dto.event.PaymentTransactionEvent;
+import com.desafiotecnico.subscription.producers.SubscriptionRenewalProducer;
+import com.desafiotecnico.subscription.repository.RenewalJobRepository;
+import com.desafiotecnico.subscription.repository.RenewalShardLeaseRepository;
+import com.desafiotecnico.subscription.repository.SubscriptionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+/*
+ * TriggersService.runShards contra o Postgres de verdade, com blocos e fatias pequenos para que o keyset dê
+ * várias voltas por fatia. Cada teste usa uma data própria, apagada no fim.
+ */
+@SpringBootTest(properties = {
+                "renewal.trigger.chunk-size=2",
+                "renewal.shards.count=2",
+                "renewal.shards.parallelism=2"
+})
+public class TriggersServiceShardsTest {
+
+        private static final int DUE = 5;
+
+        @Autowired
+        private TriggersService triggersService;
+
+        @Autowired
+        private SubscriptionRepository subscriptionRepository;
+
+        @Autowired
+        private RenewalJobRepository renewalJobRepository;
+
+        @Autowired
+        private RenewalShardLeaseRepository renewalShardLeaseRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @MockitoBean
+        private SubscriptionRenewalProducer subscriptionRenewalProducer;
+
+        private final LocalDate runDate = LocalDate.of(2060, 1, 1)
+                        .plusDays(ThreadLocalRandom.current().nextInt(3650));
+
+        private List<UUID> subscriptionIds;
+
+        @BeforeEach
+        void setUp() {
+                subscriptionIds = IntStream.range(0, DUE)
+                                .mapToObj(i -> subscriptionRepository.save(Subscription.builder()
+                                                .userId(UUID.randomUUID())
+                                                .plan(Plan.BASICO.getName())
+                                                .priceInCents(Plan.BASICO.getPriceInCents())
+                                                .status(SubscriptionStatus.ATIVA)
+                                                .startDate(runDate.minusMonths(1))
+                                                .expirationDate(runDate)
+                                                .build()).getId())
+                                .toList();
+        }
+
+        @AfterEach
+        void tearDown() {
+                var params = new MapSqlParameterSource("ids", subscriptionIds).addValue("date", runDate);
+                var named = new NamedParameterJdbcTemplate(jdbcTemplate);
+                named.update("DELETE FROM payment_transactions WHERE subscription_id IN (:ids)", params);
+                named.update("DELETE FROM subscriptions WHERE id IN (:ids)", params);
+                named.update("DELETE FROM renewal_shard_leases WHERE run_date = :date", params);
+                named.update("DELETE FROM renewal_jobs WHERE run_date = :date", params);
+        }
+
+        @Test
+        @SuppressWarnings("unchecked")
+        void shouldRenewEveryDueSubscriptionOnceAcrossShardsAndChunks() {
+                var job = job(RenewalJobStatus.RUNNING);
+
+                int found = triggersService.triggerRenovation(job.getId(), 100, runDate, false);
+
+                assertEquals(DUE, found);
+                assertEquals(DUE, transactions());
+                assertEquals(1, transactionsPerSubscriptionMax());
+
+                var leases = renewalShardLeaseRepository.findByRunDate(runDate);
+                assertTrue(leases.stream().allMatch(lease -> RenewalShardLease.DONE.equals(lease.status())));
+                assertEquals(DUE, leases.stream().mapToInt(RenewalShardLease::processed).sum());
+                assertEquals(DUE, renewalJobRepository.findById(job.getId()).orElseThrow().getFound());
+
+                // Um evento por transação, em blocos de no máximo chunk-size
+                ArgumentCaptor<List<PaymentTransactionEvent>> batches = ArgumentCaptor.forClass(List.class);
+                verify(subscriptionRenewalProducer, atLeastOnce()).sendRenewalStartBatch(batches.capture());
+                Set<UUID> sent = new HashSet<>();
+                batches.getAllValues().forEach(batch -> {
+                        assertTrue(batch.size() <= 2, "bloco maior que o chunk-size: " + batch.size());
+                        batch.forEach(event -> sent.add(event.getTransactionId()));
+                });
+                assertEquals(DUE, sent.size());
+        }
+
+        @Test
+        void shouldStopAtTheLimitAndResumeFromTheCommittedCursor() {
+                var job = job(RenewalJobStatus.RUNNING);
+
+                assertEquals(3, triggersService.triggerRenovation(job.getId(), 3, runDate, false));
+                assertEquals(3, transactions());
+                assertTrue(renewalShardLeaseRepository.findByRunDate(runDate).stream()
+                                .anyMatch(lease -> !RenewalShardLease.DONE.equals(lease.status())));
+
+                // Retomada: continua do keyset de cada fatia, sem repetir assinaturas
+                assertEquals(2, triggersService.triggerRenovation(job.getId(), 2, runDate, true));
+                assertEquals(DUE, transactions());
+                assertEquals(1, transactionsPerSubscriptionMax());
+                assertEquals(DUE, renewalJobRepository.findById(job.getId()).orElseThrow().getFound());
+        }
+
+        @Test
+        void chunkShouldNotCommitWhenTheJobCounterCannotBeUpdated() {
+                // Job cancelado: o recordChunk não afeta linha nenhuma e o bloco inteiro é desfeito
+                var job = job(RenewalJobStatus.CANCELLED);
+
+                assertEquals(0, triggersService.triggerRenovation(job.getId(), 100, runDate, false));
+
+                assertEquals(0, transactions());
+                assertEquals(0, renewalJobRepository.findById(job.getId()).orElseThrow().getFound());
+                renewalShardLeaseRepository.findByRunDate(runDate).forEach(lease -> {
+                        assertEquals(RenewalShardLease.PENDING, lease.status());
+                        assertEquals(0, lease.processed());
+                        assertNull(lease.lastId());
+                });
+        }
+
+        private RenewalJob job(RenewalJobStatus status) {
+                var now = LocalDateTime.now();
+                return renewalJobRepository.save(RenewalJob.builder()
+                                .runDate(runDate)
+                                .maxSubscriptions(100)
+                                .status(status)
+                                .found(0)
+                                .owner(triggersService.instanceId())
+                                .heartbeatAt(now)
+                                .createdAt(now)
+                                .build());
+        }
+
+        private int transactions() {
+                return new NamedParameterJdbcTemplate(jdbcTemplate).queryForObject(
+                                "SELECT count(*) FROM payment_transactions WHERE subscription_id IN (:ids)",
+                                new MapSqlParameterSource("ids", subscriptionIds), Integer.class);
+        }
+
+        private int transactionsPerSubscriptionMax() {
+                return new NamedParameterJdbcTemplate(jdbcTemplate).queryForObject(
+                                "SELECT coalesce(max(c), 0) FROM (SELECT count(*) c FROM payment_transactions " +
+                                                "WHERE subscription_id IN (:ids) GROUP BY subscription_id) t",
+                                new MapSqlParameterSource("ids", subscriptionIds), Integer.class);
+        }
+}